@@ -30,13 +30,17 @@ class PathFinderTester
      * Print help/usage message.
      */
     public static void usage(String progName) {
-        System.err.println(progName + ": [-v -t: -w: -o:] <parameter fileName>");
+        System.err.println(progName + ": [-v -r -t: -w: -o: -a:] <parameter fileName>");
         System.err.println("options are: ");
         System.err.println("-v ");
         System.err.println("-t <terrain parameter filename> ");
         System.err.println("-w <waypoint parameter filename> ");
         System.err.println("-o <path output filename> ");
+        System.err.println("-a <path finding algorithm> ");
+        System.err.println("-r ");
         System.err.println("-v will activate map and path visualisation.");
+        System.err.println("-a is one of: dijkstra (default), dial, astar, bidirectional, jps, hpa, ch, alt, lpa, flow, delta, hda.");
+        System.err.println("-r will visit the waypoints in the cheapest order instead of the file order (dijkstra only).");
         System.exit(1);
     } // end of usage
 
@@ -51,13 +55,15 @@ class PathFinderTester
         // parse command line options
         //
 
-        OptionParser parser = new OptionParser("o:vt:w:");
+        OptionParser parser = new OptionParser("o:vrt:w:a:");
         OptionSet options = parser.parse(args);
 
         String outputFilename = null;
         boolean isVisu = false;
+        boolean reorderWaypoints = false;
         String terrainFilename = null;
         String waypointFilename = null;
+        String algorithm = "dijkstra";
 
         // -o <inputFilename> specifies the file that stores the shortest path results (optional)
         if (options.has("o")) {
@@ -69,10 +75,24 @@ class PathFinderTester
                 usage(progName);
             }
         }
+        // -a <algorithm> specifies the (optional) path finding algorithm
+        if (options.has("a")) {
+            if (options.hasArgument("a")) {
+                algorithm = (String) options.valueOf("a");
+            }
+            else {
+                System.err.println("Missing name argument for -a option.");
+                usage(progName);
+            }
+        }
         // -v to visualise graph
         if (options.has("v")) {
             isVisu = true;
         }
+        // -r to visit the waypoints in the cheapest order
+        if (options.has("r")) {
+            reorderWaypoints = true;
+        }
         // -t <terrain filename> specifies the (optional) terrain parameter filename
         if (options.has("t")) {
             if (options.hasArgument("t")) {
@@ -292,7 +312,20 @@ class PathFinderTester
         //
 
         // setup path finding algorithm
-        PathFinder pathFinder = new DijkstraPathFinder(map);
+        PathFinder pathFinder = createPathFinder(algorithm, map);
+        if (pathFinder == null) {
+            System.err.println("Unknown path finding algorithm: " + algorithm);
+            usage(progName);
+        }
+        if (reorderWaypoints) {
+            if (pathFinder instanceof DijkstraPathFinder) {
+                ((DijkstraPathFinder) pathFinder).setReorderWaypoints(true);
+            }
+            else {
+                System.err.println("-r is only supported by the dijkstra algorithm.");
+                usage(progName);
+            }
+        }
 
         outStream.println(pathFinder.getClass().getSimpleName() + " is finding a path.");
 
@@ -348,4 +381,43 @@ class PathFinderTester
             }
         }
     } //end of main.
+
+
+    /**
+     * Construct the path finder selected with the -a option.
+     *
+     * @param algorithm Name of the algorithm.
+     * @param map Map to search.
+     * @return The path finder, or null if the name is not known.
+     */
+    protected static PathFinder createPathFinder(String algorithm, PathMap map) {
+        switch (algorithm) {
+            case "dijkstra":
+                return new DijkstraPathFinder(map);
+            case "dial":
+                return new DialPathFinder(map);
+            case "astar":
+                return new AStarPathFinder(map);
+            case "bidirectional":
+                return new BidirectionalPathFinder(map);
+            case "jps":
+                return new JumpPointPathFinder(map);
+            case "hpa":
+                return new HierarchicalPathFinder(map);
+            case "ch":
+                return new ContractionHierarchyPathFinder(map);
+            case "alt":
+                return new LandmarkPathFinder(map);
+            case "lpa":
+                return new IncrementalPathFinder(map);
+            case "flow":
+                return new FlowFieldPathFinder(map);
+            case "delta":
+                return new DeltaSteppingPathFinder(map);
+            case "hda":
+                return new HashDistributedAStarPathFinder(map);
+            default:
+                return null;
+        }
+    } // end of createPathFinder()
 }
@@ -0,0 +1,253 @@
+package map;
+
+import java.util.*;
+
+/**
+ * Compact grid of cell properties, stored by cell index r*sizeC+c.
+ * Passability is a bitset with one bit per cell and terrain costs are a short per cell
+ * (switching to an int per cell if a cost does not fit in a short), which is about 2 bytes per cell
+ * instead of a Coordinate object and its reference.
+ */
+public class CompactGrid
+{
+    // number of changes remembered by the journal
+    public static final int JOURNAL_SIZE = 4096;
+    // number of rows
+    public final int sizeR;
+    // number of columns
+    public final int sizeC;
+    // bit set, 1 for passable cells
+    private final long[] passable;
+    // terrain cost of each cell, while all costs fit in a short
+    private short[] costs;
+    // terrain cost of each cell, once some cost does not fit in a short
+    private int[] wideCosts = null;
+    // number of changes to passability or terrain costs so far
+    private long version = 0;
+    // ring buffer of the cells changed by the last JOURNAL_SIZE changes, change v at v % JOURNAL_SIZE
+    private int[] journal = null;
+    // first version the journal has, a copy does not remember the changes made before it
+    private long journalStart = 0;
+    // number of passable cells, and how many of them have a terrain cost other than 1
+    private int passableCount;
+    private int nonUnitCount = 0;
+    // 2 * version + 1 if all passable cells had the same terrain cost at that version, 2 * version if not,
+    // -1 before the first check, one field so that a reader never sees the answer of one version with another
+    private volatile long uniformAt = -1;
+
+
+    /**
+     * Initialise a grid where all cells are passable with a terrain cost of 1.
+     *
+     * @param rowNum Number of rows.
+     * @param colNum Number of columns.
+     */
+    public CompactGrid(int rowNum, int colNum) {
+        sizeR = rowNum;
+        sizeC = colNum;
+        int size = rowNum * colNum;
+        passable = new long[(size + 63) >>> 6];
+        Arrays.fill(passable, -1L);
+        // the bits past the last cell stay 0, so whole words can be masked with the bitset
+        if ((size & 63) != 0)
+            passable[passable.length - 1] = (1L << size) - 1;
+        costs = new short[size];
+        Arrays.fill(costs, (short) 1);
+        passableCount = size;
+    } // end of CompactGrid()
+
+
+    /**
+     * Initialise a grid as a copy of another one.
+     *
+     * @param other Grid to copy.
+     */
+    public CompactGrid(CompactGrid other) {
+        sizeR = other.sizeR;
+        sizeC = other.sizeC;
+        passable = other.passable.clone();
+        costs = other.costs != null ? other.costs.clone() : null;
+        wideCosts = other.wideCosts != null ? other.wideCosts.clone() : null;
+        version = other.version;
+        journalStart = version;
+        passableCount = other.passableCount;
+        nonUnitCount = other.nonUnitCount;
+    } // end of CompactGrid()
+
+
+    /**
+     * Index of coordinate (r, c) in the grid.
+     */
+    public int index(int r, int c) {
+        return r * sizeC + c;
+    } // end of index()
+
+
+    /**
+     * Check whether coordinate (r, c) is in the grid.
+     */
+    public boolean isIn(int r, int c) {
+        return r >= 0 && r < sizeR && c >= 0 && c < sizeC;
+    } // end of isIn()
+
+
+    /**
+     * Check if coordinate (r, c) is in the grid and passable.
+     */
+    public boolean isPassable(int r, int c) {
+        return isIn(r, c) && isPassable(r * sizeC + c);
+    } // end of isPassable()
+
+
+    /**
+     * Check if the cell with the given index is passable.
+     */
+    public boolean isPassable(int index) {
+        return (passable[index >>> 6] & (1L << index)) != 0;
+    } // end of isPassable()
+
+
+    /**
+     * Set whether the cell with the given index is passable.
+     */
+    public void setPassable(int index, boolean isPassable) {
+        changed(index);
+        if (isPassable != isPassable(index)) {
+            int delta = isPassable ? 1 : -1;
+            passableCount += delta;
+            if (terrainCost(index) != 1)
+                nonUnitCount += delta;
+        }
+        if (isPassable)
+            passable[index >>> 6] |= 1L << index;
+        else
+            passable[index >>> 6] &= ~(1L << index);
+    } // end of setPassable()
+
+
+    /**
+     * Number of 64-bit words in the passability bitset.
+     */
+    public int passableWords() {
+        return passable.length;
+    } // end of passableWords()
+
+
+    /**
+     * Word w of the passability bitset, bit i is the cell with index 64*w+i.
+     * The bits past the last cell are 0.
+     */
+    public long passableWord(int w) {
+        return passable[w];
+    } // end of passableWord()
+
+
+    /**
+     * Terrain cost of the cell with the given index.
+     */
+    public int terrainCost(int index) {
+        return wideCosts != null ? wideCosts[index] : costs[index];
+    } // end of terrainCost()
+
+
+    /**
+     * Set the terrain cost of the cell with the given index.
+     */
+    public void setTerrainCost(int index, int cost) {
+        changed(index);
+        if (isPassable(index))
+            nonUnitCount += (cost != 1 ? 1 : 0) - (terrainCost(index) != 1 ? 1 : 0);
+        if (wideCosts == null && (cost < Short.MIN_VALUE || cost > Short.MAX_VALUE)) {
+            // widen the cost array the first time a cost does not fit
+            wideCosts = new int[costs.length];
+            for (int i = 0; i < costs.length; i++)
+                wideCosts[i] = costs[i];
+            costs = null;
+        }
+        if (wideCosts != null)
+            wideCosts[index] = cost;
+        else
+            costs[index] = (short) cost;
+    } // end of setTerrainCost()
+
+
+    /**
+     * Number of changes made to the passability or terrain costs of the grid.
+     */
+    public long version() {
+        return version;
+    } // end of version()
+
+
+    /**
+     * Indices of the cells changed since the given version, in the order of the changes
+     * (a cell appears once per change).
+     *
+     * @param since Version returned by version() earlier.
+     * @return The changed cells, or null if there have been more changes than the journal remembers.
+     */
+    public int[] changesSince(long since) {
+        if (since < journalStart || since > version || version - since > JOURNAL_SIZE)
+            return null;
+        int[] cells = new int[(int) (version - since)];
+        for (long v = since; v < version; v++)
+            cells[(int) (v - since)] = journal[(int) (v % JOURNAL_SIZE)];
+        return cells;
+    } // end of changesSince()
+
+
+    /**
+     * Record a change to the cell with the given index.
+     */
+    private void changed(int index) {
+        if (journal == null)
+            journal = new int[JOURNAL_SIZE];
+        journal[(int) (version % JOURNAL_SIZE)] = index;
+        version++;
+    } // end of changed()
+
+
+    /**
+     * Smallest and largest terrain cost of the passable cells, as {min, max}, {1, 1} if there are none.
+     */
+    public int[] terrainCostRange() {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < sizeR * sizeC; i++) {
+            if (isPassable(i)) {
+                min = Math.min(min, terrainCost(i));
+                max = Math.max(max, terrainCost(i));
+            }
+        }
+        return min == Integer.MAX_VALUE ? new int[]{1, 1} : new int[]{min, max};
+    } // end of terrainCostRange()
+
+
+    /**
+     * Check whether all passable cells have the same terrain cost, so the cheapest path is the one
+     * with the fewest steps. The counts of passable cells answer it unless every passable cell has a
+     * cost other than 1, then the cells are scanned once per version.
+     */
+    public boolean isUniformCost() {
+        if (nonUnitCount == 0)
+            return true;
+        if (nonUnitCount < passableCount)
+            return false;
+        long at = uniformAt;
+        if (at >> 1 != version) {
+            int[] range = terrainCostRange();
+            at = 2 * version + (range[0] == range[1] ? 1 : 0);
+            uniformAt = at;
+        }
+        return (at & 1) != 0;
+    } // end of isUniformCost()
+
+
+    /**
+     * Approximate memory used by the cell data, in bytes.
+     */
+    public long footprintBytes() {
+        return 8L * passable.length + (wideCosts != null ? 4L * wideCosts.length : 2L * costs.length);
+    } // end of footprintBytes()
+
+} // end of class CompactGrid
@@ -0,0 +1,328 @@
+package map;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Connected components of the passable cells of a PathMap, to reject queries with no path in O(1).
+ * The map is labelled in parallel: strips of rows are joined with a union-find each, then the strips
+ * are joined along their borders. Afterwards every passable cell has a component id, and ids are
+ * merged with a union-find when an unblocked cell joins components. A blocked cell can split its
+ * component, so the cells around it are flood filled with new ids, which costs the size of that
+ * component and not of the map. Changes are read from the journal of the map before every lookup.
+ */
+public class ComponentIndex
+{
+    // cells labelled by one task of the initial labelling
+    private static final int STRIP_CELLS = 1 << 15;
+    // row, column offsets of the 4 neighbours
+    private static final int[] DR = {-1, 1, 0, 0};
+    private static final int[] DC = {0, 0, -1, 1};
+
+    private final PathMap map;
+    // component id of each cell, -1 for impassable cells
+    private int[] label;
+    // union-find over component ids, ids below the number of cells come from the initial labelling
+    private int[] parent;
+    // next id for a new component
+    private int nextId;
+    // version of the map the labels are up to date with
+    private long version;
+    // cells still to flood fill, allocated by the first fill
+    private int[] stack = null;
+    // ids given to the neighbours of a blocked cell so far, at most one per neighbour
+    private final int[] filledIds = new int[4];
+
+
+    /**
+     * Label the current cells of the map.
+     *
+     * @param map Map to index.
+     */
+    public ComponentIndex(PathMap map) {
+        this.map = map;
+        rebuild();
+    } // end of ComponentIndex()
+
+
+    /**
+     * Component of the cell (r, c), -1 if it is outside the map or impassable.
+     * Two cells are connected exactly when they have the same component.
+     */
+    public synchronized int component(int r, int c) {
+        sync();
+        if (!map.isIn(r, c) || label[r * map.sizeC + c] == -1)
+            return -1;
+        return find(label[r * map.sizeC + c]);
+    } // end of component()
+
+
+    /**
+     * Check whether a cell of one list is in the same component as a cell of the other.
+     * When it is not, there is no path between the two lists.
+     */
+    public synchronized boolean connects(List<Coordinate> from, List<Coordinate> to) {
+        sync();
+        Set<Integer> components = new HashSet<Integer>();
+        for (Coordinate c : from)
+            if (map.isPassable(c.getRow(), c.getColumn()))
+                components.add(find(label[c.getRow() * map.sizeC + c.getColumn()]));
+        for (Coordinate c : to)
+            if (map.isPassable(c.getRow(), c.getColumn())
+                && components.contains(find(label[c.getRow() * map.sizeC + c.getColumn()])))
+                return true;
+        return false;
+    } // end of connects()
+
+
+    /**
+     * Check whether each leg of a tour, from the origins through the waypoints in order to the
+     * destinations, has its two ends in a common component. When it does not, the tour has no path.
+     */
+    public synchronized boolean connects(List<Coordinate> origins, List<Coordinate> waypoints, List<Coordinate> destinations) {
+        List<Coordinate> from = origins;
+        for (Coordinate w : waypoints) {
+            if (!connects(from, Collections.singletonList(w)))
+                return false;
+            from = Collections.singletonList(w);
+        }
+        return connects(from, destinations);
+    } // end of connects()
+
+
+    /**
+     * Bring the labels up to date with the changes made to the map since the last lookup.
+     */
+    private void sync() {
+        if (map.getVersion() == version)
+            return;
+        int[] changed = map.changedCellsSince(version);
+        // the map was re-initialised or changed too much for its journal
+        if (changed == null || changed.length > map.sizeR * map.sizeC / 8) {
+            rebuild();
+            return;
+        }
+        version = map.getVersion();
+        // cells flood filled so far, past the number of cells labelling again is cheaper
+        long filled = 0;
+        for (int cell : changed) {
+            if (filled > label.length) {
+                rebuild();
+                return;
+            }
+            boolean passable = map.getGrid().isPassable(cell);
+            if (passable && label[cell] == -1)
+                unblocked(cell);
+            else if (!passable && label[cell] != -1)
+                filled += blocked(cell);
+        }
+    } // end of sync()
+
+
+    /**
+     * The cell has become passable: it joins the components of its passable neighbours.
+     */
+    private void unblocked(int cell) {
+        if (nextId == parent.length) {
+            // out of ids, labelling again also frees the ones no cell uses any more
+            rebuild();
+            return;
+        }
+        label[cell] = newId();
+        int r = cell / map.sizeC, c = cell % map.sizeC;
+        for (int d = 0; d < 4; d++) {
+            int nr = r + DR[d], nc = c + DC[d];
+            if (map.isIn(nr, nc) && label[nr * map.sizeC + nc] != -1)
+                union(label[cell], label[nr * map.sizeC + nc]);
+        }
+    } // end of unblocked()
+
+
+    /**
+     * The cell has become impassable: each neighbour not yet reached from another one gets
+     * a new component, flood filled over the passable cells it reaches.
+     *
+     * @return Number of cells filled.
+     */
+    private int blocked(int cell) {
+        label[cell] = -1;
+        int r = cell / map.sizeC, c = cell % map.sizeC;
+        int filled = 0, count = 0;
+        for (int d = 0; d < 4; d++) {
+            int nr = r + DR[d], nc = c + DC[d];
+            if (!map.isPassable(nr, nc))
+                continue;
+            int start = nr * map.sizeC + nc;
+            if (contains(filledIds, filled, label[start]))
+                continue;
+            if (nextId == parent.length) {
+                // out of ids, labelling again also frees the ones no cell uses any more
+                rebuild();
+                return label.length;
+            }
+            int id = newId();
+            count += fill(start, id);
+            filledIds[filled++] = id;
+        }
+        return count;
+    } // end of blocked()
+
+
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++)
+            if (ids[i] == id)
+                return true;
+        return false;
+    } // end of contains()
+
+
+    /**
+     * Give the id to every passable cell reached from the start cell.
+     *
+     * @return Number of cells filled.
+     */
+    private int fill(int start, int id) {
+        CompactGrid grid = map.getGrid();
+        // the map may have been re-initialised with more cells since the first fill
+        if (stack == null || stack.length < label.length)
+            stack = new int[label.length];
+        int top = 0, count = 0;
+        label[start] = id;
+        stack[top++] = start;
+        while (top > 0) {
+            int cell = stack[--top];
+            count++;
+            int r = cell / map.sizeC, c = cell % map.sizeC;
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DR[d], nc = c + DC[d];
+                if (!grid.isPassable(nr, nc))
+                    continue;
+                int next = nr * map.sizeC + nc;
+                if (label[next] != id) {
+                    label[next] = id;
+                    stack[top++] = next;
+                }
+            }
+        }
+        return count;
+    } // end of fill()
+
+
+    /**
+     * Label every cell from scratch, in parallel on the common fork-join pool.
+     */
+    private void rebuild() {
+        version = map.getVersion();
+        int size = map.sizeR * map.sizeC;
+        label = new int[size];
+        ForkJoinPool.commonPool().invoke(new StripTask(0, map.sizeR));
+        // join the strips across the rows where they meet
+        for (int r = stripRows(); r < map.sizeR; r += stripRows())
+            for (int c = 0; c < map.sizeC; c++)
+                if (label[r * map.sizeC + c] != -1 && label[(r - 1) * map.sizeC + c] != -1)
+                    union(r * map.sizeC + c, (r - 1) * map.sizeC + c, label);
+        // label is now a union-find over the cells, each cell takes the cell at its root as its id
+        for (int cell = 0; cell < size; cell++)
+            if (label[cell] != -1)
+                label[cell] = find(cell, label);
+        // room for the ids of a quarter as many changes as cells before labelling again
+        parent = new int[size + size / 4 + 64];
+        for (int id = 0; id < parent.length; id++)
+            parent[id] = id;
+        nextId = size;
+    } // end of rebuild()
+
+
+    /**
+     * Number of rows in a strip of the initial labelling.
+     */
+    private int stripRows() {
+        return Math.max(1, STRIP_CELLS / Math.max(1, map.sizeC));
+    } // end of stripRows()
+
+
+    private int newId() {
+        return nextId++;
+    } // end of newId()
+
+
+    private int find(int id) {
+        return find(id, parent);
+    } // end of find()
+
+
+    private void union(int a, int b) {
+        union(a, b, parent);
+    } // end of union()
+
+
+    /**
+     * Root of the set of x in the union-find, halving the path on the way.
+     */
+    private static int find(int x, int[] parent) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    } // end of find()
+
+
+    /**
+     * Join the sets of a and b, the smaller root becomes the root of both.
+     */
+    private static void union(int a, int b, int[] parent) {
+        int ra = find(a, parent), rb = find(b, parent);
+        if (ra < rb)
+            parent[rb] = ra;
+        else if (rb < ra)
+            parent[ra] = rb;
+    } // end of union()
+
+
+    /**
+     * Labels a range of rows, one union-find per strip. A strip only writes its own cells,
+     * so strips run in parallel without locking.
+     */
+    private class StripTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        StripTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = stripRows();
+            if (to - from > rows) {
+                // split on a strip boundary, so the joins afterwards only look at those rows
+                int mid = from + ((to - from) / rows / 2) * rows;
+                if (mid == from)
+                    mid += rows;
+                invokeAll(new StripTask(from, mid), new StripTask(mid, to));
+                return;
+            }
+            CompactGrid grid = map.getGrid();
+            for (int r = from; r < to; r++) {
+                for (int c = 0; c < map.sizeC; c++) {
+                    int cell = r * map.sizeC + c;
+                    if (!grid.isPassable(cell)) {
+                        label[cell] = -1;
+                        continue;
+                    }
+                    label[cell] = cell;
+                    if (c > 0 && label[cell - 1] != -1)
+                        union(cell, cell - 1, label);
+                    if (r > from && label[cell - map.sizeC] != -1)
+                        union(cell, cell - map.sizeC, label);
+                }
+            }
+        }
+    } // end of class StripTask
+
+} // end of class ComponentIndex
@@ -56,7 +56,7 @@ public class Coordinate
     {
         if (this == o) return true;
 
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Coordinate)) return false;
 
         Coordinate coord = (Coordinate) o;
         return r == coord.getRow() && c == coord.getColumn();
@@ -71,6 +71,6 @@ public class Coordinate
     @Override
     public String toString() 
     {
-        return "(" + r + "," + c + "), " + isImpassable + ", " + terrainCost;
+        return "(" + r + "," + c + "), " + getImpassable() + ", " + getTerrainCost();
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package map;
+
+/**
+ * Coordinate of a PathMap cell whose passability and terrain cost are read from
+ * and written to the CompactGrid of the map.
+ */
+class GridCoordinate extends Coordinate
+{
+    private final CompactGrid grid;
+
+    private final int index;
+
+
+    GridCoordinate(CompactGrid grid, int r, int c) 
+    {
+        super(r, c);
+        this.grid = grid;
+        this.index = grid.index(r, c);
+    }
+
+
+    @Override
+    public void setImpassable(boolean impassable) 
+    {
+        grid.setPassable(index, !impassable);
+    }
+
+    @Override
+    public boolean getImpassable() { return !grid.isPassable(index); }
+
+    @Override
+    public void setTerrainCost(int cost) 
+    {
+        grid.setTerrainCost(index, cost);
+    }
+
+    @Override
+    public int getTerrainCost() { return grid.terrainCost(index); }
+}
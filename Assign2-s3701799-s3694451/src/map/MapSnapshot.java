@@ -0,0 +1,62 @@
+package map;
+
+/**
+ * Immutable copy of the cells of a PathMap, taken with PathMap.snapshot().
+ * Later changes to the map are not seen, so any number of threads can read it without locking.
+ * Cells are addressed by index r*sizeC+c like in CompactGrid.
+ */
+public final class MapSnapshot
+{
+    // number of rows
+    public final int sizeR;
+    // number of columns
+    public final int sizeC;
+    // private copy of the grid, never modified
+    private final CompactGrid grid;
+    // smallest and largest terrain cost of the passable cells
+    private final int minTerrainCost;
+    private final int maxTerrainCost;
+
+
+    /**
+     * Copy the current cells of the map.
+     *
+     * @param map Map to copy.
+     */
+    public MapSnapshot(PathMap map) {
+        sizeR = map.sizeR;
+        sizeC = map.sizeC;
+        grid = new CompactGrid(map.getGrid());
+        int[] range = grid.terrainCostRange();
+        minTerrainCost = range[0];
+        maxTerrainCost = range[1];
+    } // end of MapSnapshot()
+
+
+    public int size() { return sizeR * sizeC; }
+
+    public int index(int r, int c) { return r * sizeC + c; }
+
+    public boolean isIn(int r, int c) { return grid.isIn(r, c); }
+
+    public boolean isPassable(int r, int c) { return grid.isPassable(r, c); }
+
+    public boolean isPassable(int index) { return grid.isPassable(index); }
+
+    public int terrainCost(int index) { return grid.terrainCost(index); }
+
+    public int minTerrainCost() { return minTerrainCost; }
+
+    public int maxTerrainCost() { return maxTerrainCost; }
+
+
+    /**
+     * New coordinate object for the cell with the given index, with its passability and terrain cost.
+     */
+    public Coordinate coordinate(int index) {
+        Coordinate coord = new Coordinate(index / sizeC, index % sizeC, !grid.isPassable(index));
+        coord.setTerrainCost(grid.terrainCost(index));
+        return coord;
+    } // end of coordinate()
+
+} // end of class MapSnapshot
@@ -22,8 +22,14 @@ public class PathMap
     public int sizeR;
     // number of columns
     public int sizeC;
-    // 2D grid of cells
+    // 2D grid of cells, a view over the compact grid
     public Coordinate cells[][] = null;
+    // passability and terrain costs of the cells
+    private CompactGrid grid = null;
+    // version of the map before the current grid, so that versions keep growing across initMap() calls
+    private long versionBase = 0;
+    // connected components of the passable cells
+    private ComponentIndex components = null;
     // List of origin cells/coordinates
     public List<Coordinate> originCells;
     // list of destination cells/coordinates
@@ -55,13 +61,16 @@ public class PathMap
         destCells = desCells;
         this.waypointCells = waypointCells;
 
+        if (grid != null)
+            versionBase += grid.version() + 1;
+        grid = new CompactGrid(sizeR, sizeC);
         cells = new Coordinate[sizeR][sizeC];
 
         // construct the coordinates in the grid and also update inforamtion about impassable
         // and terrain costs.
         for (int i = 0; i < sizeR; i++) {
             for (int j = 0; j < sizeC; j++) {
-                Coordinate coord = new Coordinate(i, j);
+                Coordinate coord = new GridCoordinate(grid, i, j);
                 // add impassable cells
                 if (impassableCells.contains(coord)) {
                     coord.setImpassable(true);
@@ -76,6 +85,7 @@ public class PathMap
                 cells[i][j] = coord;
             }
         }
+        components = new ComponentIndex(this);
     } // end of initMap()
 
 
@@ -113,10 +123,85 @@ public class PathMap
      * Check if a coordinate (r,c) is passable/can be traversed.
      */
     public boolean isPassable(int r, int c) {
-        return isIn(r, c) && !cells[r][c].getImpassable();
+        return grid.isPassable(r, c);
     } // end of isPassable()
 
 
+    /**
+     * Make the cell (r, c) impassable.
+     */
+    public void blockCell(int r, int c) {
+        grid.setPassable(grid.index(r, c), false);
+    } // end of blockCell()
+
+
+    /**
+     * Make the cell (r, c) passable.
+     */
+    public void unblockCell(int r, int c) {
+        grid.setPassable(grid.index(r, c), true);
+    } // end of unblockCell()
+
+
+    /**
+     * Set the terrain cost of the cell (r, c).
+     */
+    public void setTerrainCost(int r, int c, int cost) {
+        grid.setTerrainCost(grid.index(r, c), cost);
+    } // end of setTerrainCost()
+
+
+    /**
+     * Version of the map, which grows whenever the map is initialised or the passability
+     * or terrain cost of a cell changes, through this map or through its cells.
+     * Results computed for one version are stale once it has changed.
+     */
+    public long getVersion() {
+        return grid == null ? versionBase : versionBase + grid.version();
+    } // end of getVersion()
+
+
+    /**
+     * Indices (r*sizeC+c) of the cells whose passability or terrain cost changed since the given version,
+     * for searches that repair their results instead of starting again.
+     *
+     * @param version Version returned by getVersion() earlier.
+     * @return The changed cells, possibly repeated, or null if they are not known because the map has been
+     * re-initialised or there have been more than CompactGrid.JOURNAL_SIZE changes.
+     */
+    public int[] changedCellsSince(long version) {
+        if (grid == null || version < versionBase)
+            return null;
+        return grid.changesSince(version - versionBase);
+    } // end of changedCellsSince()
+
+
+    /**
+     * The connected components of the passable cells, kept up to date with the changes to the map.
+     */
+    public ComponentIndex getComponents() {
+        return components;
+    } // end of getComponents()
+
+
+    /**
+     * The compact grid that stores passability and terrain costs by cell index (r*sizeC+c).
+     * The coordinates in cells read and write through to it.
+     */
+    public CompactGrid getGrid() {
+        return grid;
+    } // end of getGrid()
+
+
+    /**
+     * Take an immutable copy of the passability and terrain costs of the map,
+     * which can be shared by concurrent searches.
+     */
+    public MapSnapshot snapshot() {
+        return new MapSnapshot(this);
+    } // end of snapshot()
+
+
     /**
      * Draw the map in a window.
      */
@@ -0,0 +1,85 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * A* search over the grid.
+ * The heuristic is the Manhattan distance to the nearest target scaled by the smallest
+ * terrain cost of the map. Every move costs at least that much, so the heuristic never
+ * overestimates and is consistent, and a cell is never expanded twice.
+ */
+public class AStarPathFinder extends GridPathFinder
+{
+	//constructor initialized with the map
+	public AStarPathFinder(PathMap map)
+	{
+		super(map);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		int[] targetCells=passableIndices(targets);
+		if(targetCells.length==0)
+			return new ArrayList<Coordinate>();
+		int minCost=terrainCostRange()[0];
+		SearchWorkspace workspace=SearchWorkspace.acquire(map);
+		try
+		{
+			return search(workspace, sources, targetCells, minCost);
+		}
+		finally
+		{
+			SearchWorkspace.release(map, workspace);
+		}
+	}
+
+	private List<Coordinate> search(SearchWorkspace workspace, List<Coordinate> sources, int[] targetCells, int minCost)
+	{
+		for(int t : targetCells)
+			workspace.markTarget(t);
+		IndexedMinHeap open=workspace.open();
+		for(int s : passableIndices(sources))
+		{
+			workspace.update(s, 0, -1);
+			open.insertOrDecrease(s, heuristic(s, targetCells, minCost));
+		}
+
+		int[] nbrs=new int[4];
+		while(!open.isEmpty())
+		{
+			int v=open.poll();
+			workspace.close(v);
+			coordinatesExplored++;
+			if(workspace.isTarget(v))
+				return buildPath(workspace, v);
+
+			int count=neighbours(v, nbrs);
+			for(int i=0;i<count;++i)
+			{
+				int w=nbrs[i];
+				if(workspace.isClosed(w))
+					continue;
+				int g=workspace.cost(v)+terrainCost(w);
+				if(g<workspace.cost(w))
+				{
+					workspace.update(w, g, v);
+					open.insertOrDecrease(w, g+heuristic(w, targetCells, minCost));
+				}
+			}
+		}
+		return new ArrayList<Coordinate>();
+	}
+
+	//Manhattan distance to the nearest target times the smallest terrain cost
+	protected int heuristic(int cell, int[] targets, int minCost)
+	{
+		int r=cell/map.sizeC, c=cell%map.sizeC;
+		int best=Integer.MAX_VALUE;
+		for(int t : targets)
+			best=Math.min(best, Math.abs(r-t/map.sizeC)+Math.abs(c-t%map.sizeC));
+		return best*minCost;
+	}
+}
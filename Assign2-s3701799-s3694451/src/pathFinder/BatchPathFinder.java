@@ -0,0 +1,78 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.MapSnapshot;
+
+/**
+ * Runs many queries against one map snapshot on a fork-join pool.
+ * The batch is split recursively between the workers, each worker searches in its own
+ * workspace, and results are returned in the order of the queries.
+ */
+public class BatchPathFinder
+{
+	// queries answered sequentially by each fork-join task
+	private static final int QUERIES_PER_TASK=16;
+
+	private final SnapshotPathFinder finder;
+	private final ForkJoinPool pool;
+
+	//batches run on the common fork-join pool, which uses all cores
+	public BatchPathFinder(MapSnapshot snapshot)
+	{
+		this(snapshot, ForkJoinPool.commonPool());
+	}
+
+	public BatchPathFinder(MapSnapshot snapshot, ForkJoinPool pool)
+	{
+		this.finder=new SnapshotPathFinder(snapshot);
+		this.pool=pool;
+	}
+
+	/**
+	 * Answer every query of the batch.
+	 *
+	 * @param queries Queries against the snapshot.
+	 * @return One result per query, in the same order, with the throughput of the batch.
+	 */
+	public BatchResult findPaths(List<PathQuery> queries)
+	{
+		PathResult[] results=new PathResult[queries.size()];
+		long start=System.nanoTime();
+		pool.invoke(new QueryTask(queries, results, 0, queries.size()));
+		return new BatchResult(Arrays.asList(results), System.nanoTime()-start, pool.getParallelism());
+	}
+
+	//answers a range of the queries, splitting it in half until it is small enough
+	private class QueryTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+
+		private final List<PathQuery> queries;
+		private final PathResult[] results;
+		private final int from, to;
+
+		QueryTask(List<PathQuery> queries, PathResult[] results, int from, int to)
+		{
+			this.queries=queries;
+			this.results=results;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to-from<=QUERIES_PER_TASK)
+			{
+				//the thread-local workspace of the worker running this task
+				for(int i=from;i<to;++i)
+					results[i]=finder.findPath(queries.get(i));
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new QueryTask(queries, results, from, mid), new QueryTask(queries, results, mid, to));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package pathFinder;
+
+import java.util.*;
+
+/**
+ * Results of a batch of queries, in the order the queries were given, with aggregate throughput.
+ */
+public final class BatchResult
+{
+	private final List<PathResult> results;
+	private final long elapsedNanos;
+	private final int threads;
+
+	public BatchResult(List<PathResult> results, long elapsedNanos, int threads)
+	{
+		this.results=Collections.unmodifiableList(new ArrayList<PathResult>(results));
+		this.elapsedNanos=elapsedNanos;
+		this.threads=threads;
+	}
+
+	//result i answers query i
+	public List<PathResult> getResults() { return results; }
+
+	//wall-clock time of the whole batch
+	public long getElapsedNanos() { return elapsedNanos; }
+
+	//parallelism of the pool the batch ran on
+	public int getThreads() { return threads; }
+
+	public int getFoundCount()
+	{
+		int found=0;
+		for(PathResult r : results)
+			if(r.isFound())
+				found++;
+		return found;
+	}
+
+	public long getCoordinatesExplored()
+	{
+		long explored=0;
+		for(PathResult r : results)
+			explored+=r.getCoordinatesExplored();
+		return explored;
+	}
+
+	public double getQueriesPerSecond()
+	{
+		return elapsedNanos==0 ? 0 : results.size()*1e9/elapsedNanos;
+	}
+
+	public double getCoordinatesExploredPerSecond()
+	{
+		return elapsedNanos==0 ? 0 : getCoordinatesExplored()*1e9/elapsedNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d queries (%d found) in %.1f ms on %d threads: %.0f queries/s, %.0f cells explored/s",
+			results.size(), getFoundCount(), elapsedNanos/1e6, threads, getQueriesPerSecond(), getCoordinatesExploredPerSecond());
+	}
+}
@@ -0,0 +1,122 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Bidirectional Dijkstra.
+ * A forward search grows from the sources and a backward search grows from the targets,
+ * always expanding the side with the smaller open set. Moving into a cell costs its terrain
+ * cost, so the backward search pays the terrain cost of the cell it leaves.
+ * Whenever a cell gets a label from both sides it is a candidate meeting point, and the search
+ * stops once the smallest forward key plus the smallest backward key reaches the best meeting cost,
+ * as no path through unsettled cells can be cheaper from then on.
+ */
+public class BidirectionalPathFinder extends GridPathFinder
+{
+	//constructor initialized with the map
+	public BidirectionalPathFinder(PathMap map)
+	{
+		super(map);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		SearchWorkspace forwardSpace=SearchWorkspace.acquire(map);
+		SearchWorkspace backwardSpace=SearchWorkspace.acquire(map);
+		try
+		{
+			return search(forwardSpace, backwardSpace, sources, targets);
+		}
+		finally
+		{
+			SearchWorkspace.release(map, forwardSpace);
+			SearchWorkspace.release(map, backwardSpace);
+		}
+	}
+
+	//the parent of a cell in the backward workspace is the next cell towards the targets
+	private List<Coordinate> search(SearchWorkspace fw, SearchWorkspace bw, List<Coordinate> sources, List<Coordinate> targets)
+	{
+		IndexedMinHeap forward=fw.open();
+		IndexedMinHeap backward=bw.open();
+		for(int s : passableIndices(sources))
+		{
+			fw.update(s, 0, -1);
+			forward.insertOrDecrease(s, 0);
+		}
+		int best=Integer.MAX_VALUE;
+		int meet=-1;
+		for(int t : passableIndices(targets))
+		{
+			bw.update(t, 0, -1);
+			backward.insertOrDecrease(t, 0);
+			//a cell that is both a source and a target is a path on its own
+			if(fw.cost(t)==0)
+			{
+				best=0;
+				meet=t;
+			}
+		}
+
+		int[] nbrs=new int[4];
+		while(!forward.isEmpty() && !backward.isEmpty())
+		{
+			if((long)forward.peekKey()+backward.peekKey()>=best)
+				break;
+			coordinatesExplored++;
+			if(forward.size()<=backward.size())
+			{
+				int v=forward.poll();
+				fw.close(v);
+				int count=neighbours(v, nbrs);
+				for(int i=0;i<count;++i)
+				{
+					int w=nbrs[i];
+					int cost=fw.cost(v)+terrainCost(w);
+					if(!fw.isClosed(w) && cost<fw.cost(w))
+					{
+						fw.update(w, cost, v);
+						forward.insertOrDecrease(w, cost);
+						if(bw.cost(w)!=Integer.MAX_VALUE && cost+bw.cost(w)<best)
+						{
+							best=cost+bw.cost(w);
+							meet=w;
+						}
+					}
+				}
+			}
+			else
+			{
+				int v=backward.poll();
+				bw.close(v);
+				int count=neighbours(v, nbrs);
+				for(int i=0;i<count;++i)
+				{
+					int w=nbrs[i];
+					int cost=bw.cost(v)+terrainCost(v);
+					if(!bw.isClosed(w) && cost<bw.cost(w))
+					{
+						bw.update(w, cost, v);
+						backward.insertOrDecrease(w, cost);
+						if(fw.cost(w)!=Integer.MAX_VALUE && cost+fw.cost(w)<best)
+						{
+							best=cost+fw.cost(w);
+							meet=w;
+						}
+					}
+				}
+			}
+		}
+
+		if(meet==-1)
+			return new ArrayList<Coordinate>();
+		//sources up to the meeting cell, then follow the backward links to the target
+		List<Coordinate> path=buildPath(fw, meet);
+		for(int curr=bw.parent(meet);curr!=-1;curr=bw.parent(curr))
+			path.add(cellAt(curr));
+		return path;
+	}
+}
@@ -0,0 +1,239 @@
+package pathFinder;
+
+import java.util.Arrays;
+import map.CompactGrid;
+
+/**
+ * Breadth-first search for grids where every passable cell has the same terrain cost, where the
+ * path with the fewest steps is also the cheapest. The frontier and the visited cells are bitsets
+ * laid out like the passability bitset of the grid, so a level is expanded 64 cells at a time:
+ * the four neighbours of a word of the frontier are the word shifted by one cell or by one row,
+ * masked with the passable cells not visited yet. Only the words next to a word of the frontier
+ * are expanded. The neighbours of a cell are at most one level apart, so the level of each cell
+ * modulo 3, kept in two more bitsets, is enough to walk back from the target.
+ * The bitsets are made once per grid and reused by every search on it, a search only allocates its path
+ * and clears only the words it set.
+ */
+final class BitsetBreadthFirstSearch
+{
+	private final CompactGrid grid;
+	private final int words;
+	// a row is q words and b bits long
+	private final int q, b;
+	// offsets of the words a cell of a word can step to, one row is q or q+1 words away
+	private final int[] reach;
+	// cells not in the first column, not in the last column
+	private final long[] notFirst, notLast;
+	// cells of the current level and of the next one, both 0 outside their active words between levels
+	private long[] frontier, next;
+	private final long[] visited, target;
+	// bits 0 and 1 of the level modulo 3 of each visited cell
+	private final long[] level0, level1;
+	// words of the frontier, and of the next level
+	private int[] active, nextActive;
+	// words of visited set by the current search, the level bitsets are 0 outside them
+	private final int[] touched;
+	private int touchedCount=0;
+	// stamp of the level a word was last expanded in, so that it is expanded once per level
+	private final int[] expanded;
+	// stamp of the current level, it keeps growing across searches so that expanded is never cleared
+	private int stamp=0;
+	// cells reached by the last search
+	private int explored;
+
+	//search on the grid, which must not change while the search runs
+	BitsetBreadthFirstSearch(CompactGrid grid)
+	{
+		this.grid=grid;
+		words=grid.passableWords();
+		q=grid.sizeC>>>6;
+		b=grid.sizeC&63;
+		reach=new int[]{-q-1, -q, -1, 0, 1, q, q+1};
+		notFirst=new long[words];
+		notLast=new long[words];
+		Arrays.fill(notFirst, -1L);
+		Arrays.fill(notLast, -1L);
+		for(int r=0;r<grid.sizeR;++r)
+		{
+			int first=r*grid.sizeC, last=first+grid.sizeC-1;
+			notFirst[first>>>6]&=~(1L<<first);
+			notLast[last>>>6]&=~(1L<<last);
+		}
+		frontier=new long[words];
+		next=new long[words];
+		visited=new long[words];
+		target=new long[words];
+		level0=new long[words];
+		level1=new long[words];
+		active=new int[words];
+		nextActive=new int[words];
+		expanded=new int[words];
+		touched=new int[words];
+	}
+
+	int explored() { return explored; }
+
+	//whether the search was made for the grid, a map gets a new grid when it is initialised again
+	boolean isFor(CompactGrid grid) { return this.grid==grid; }
+
+	/**
+	 * Path with the fewest steps from the sources to the nearest target, the target with the lowest
+	 * index when several are as near. Impassable sources and targets are ignored.
+	 *
+	 * @return The cells of the path, or null if no target can be reached.
+	 */
+	int[] search(int[] sources, int[] targets)
+	{
+		explored=0;
+		for(int t : targets)
+			if(grid.isPassable(t))
+				target[t>>>6]|=1L<<t;
+
+		//the sources are level 0, which is 0 in both level bitsets
+		int count=0;
+		int found=Integer.MAX_VALUE;
+		for(int s : sources)
+			if(grid.isPassable(s) && (visited[s>>>6] & (1L<<s))==0)
+			{
+				if(frontier[s>>>6]==0)
+					active[count++]=s>>>6;
+				if(visited[s>>>6]==0)
+					touched[touchedCount++]=s>>>6;
+				visited[s>>>6]|=1L<<s;
+				frontier[s>>>6]|=1L<<s;
+				explored++;
+				if((target[s>>>6] & (1L<<s))!=0)
+					found=Math.min(found, s);
+			}
+
+		int level=0;
+		while(found==Integer.MAX_VALUE && count>0)
+		{
+			level++;
+			if(++stamp==Integer.MAX_VALUE)
+			{
+				Arrays.fill(expanded, 0);
+				stamp=1;
+			}
+			long mod0=level%3==1 ? -1L : 0, mod1=level%3==2 ? -1L : 0;
+			int nextCount=0;
+			for(int i=0;i<count;++i)
+			{
+				for(int k=0;k<reach.length;++k)
+				{
+					int w=active[i]+reach[k];
+					if(w<0 || w>=words || expanded[w]==stamp)
+						continue;
+					expanded[w]=stamp;
+					long reached=(right(w) | left(w) | down(w) | up(w)) & grid.passableWord(w) & ~visited[w];
+					if(reached==0)
+						continue;
+					next[w]=reached;
+					nextActive[nextCount++]=w;
+					if(visited[w]==0)
+						touched[touchedCount++]=w;
+					visited[w]|=reached;
+					level0[w]|=reached & mod0;
+					level1[w]|=reached & mod1;
+					explored+=Long.bitCount(reached);
+					if((reached & target[w])!=0)
+						found=Math.min(found, (w<<6)+Long.numberOfTrailingZeros(reached & target[w]));
+				}
+			}
+			//the old frontier is cleared to take the next level, so both are 0 outside their active words
+			for(int i=0;i<count;++i)
+				frontier[active[i]]=0;
+			long[] swapWords=frontier;
+			frontier=next;
+			next=swapWords;
+			int[] swapActive=active;
+			active=nextActive;
+			nextActive=swapActive;
+			count=nextCount;
+		}
+		for(int i=0;i<count;++i)
+			frontier[active[i]]=0;
+		int[] path=found==Integer.MAX_VALUE ? null : walkBack(found, level);
+		clear(targets);
+		return path;
+	}
+
+	//sets the bitsets back to 0 for the next search, from the words the search set
+	private void clear(int[] targets)
+	{
+		for(int t : targets)
+			target[t>>>6]=0;
+		for(int i=0;i<touchedCount;++i)
+		{
+			int w=touched[i];
+			visited[w]=0;
+			level0[w]=0;
+			level1[w]=0;
+		}
+		touchedCount=0;
+	}
+
+	//cells of the frontier that have a neighbour to the right, moved one cell right, and so on
+	private long right(int w)
+	{
+		long carry=w>0 ? (frontier[w-1] & notLast[w-1])>>>63 : 0;
+		return ((frontier[w] & notLast[w])<<1) | carry;
+	}
+
+	private long left(int w)
+	{
+		long carry=w+1<words ? (frontier[w+1] & notFirst[w+1])<<63 : 0;
+		return ((frontier[w] & notFirst[w])>>>1) | carry;
+	}
+
+	//the frontier moved one row down, bits past the last cell are masked by the passable cells
+	private long down(int w)
+	{
+		long high=w-q>=0 ? frontier[w-q] : 0;
+		if(b==0)
+			return high;
+		long low=w-q-1>=0 ? frontier[w-q-1] : 0;
+		return (high<<b) | (low>>>(64-b));
+	}
+
+	private long up(int w)
+	{
+		long low=w+q<words ? frontier[w+q] : 0;
+		if(b==0)
+			return low;
+		long high=w+q+1<words ? frontier[w+q+1] : 0;
+		return (low>>>b) | (high<<(64-b));
+	}
+
+	//level modulo 3 of a visited cell
+	private int levelMod3(int cell)
+	{
+		long bit=1L<<cell;
+		return ((level0[cell>>>6] & bit)!=0 ? 1 : 0) | ((level1[cell>>>6] & bit)!=0 ? 2 : 0);
+	}
+
+	//from the target back to a source, stepping each time to a visited neighbour one level earlier
+	private int[] walkBack(int cell, int level)
+	{
+		int[] path=new int[level+1];
+		path[level]=cell;
+		while(level>0)
+		{
+			int r=cell/grid.sizeC, c=cell%grid.sizeC;
+			for(int d=0;d<4;++d)
+			{
+				int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+				if(!grid.isIn(nr, nc))
+					continue;
+				int prev=grid.index(nr, nc);
+				if((visited[prev>>>6] & (1L<<prev))!=0 && levelMod3(prev)==(level-1)%3)
+				{
+					cell=prev;
+					break;
+				}
+			}
+			path[--level]=cell;
+		}
+		return path;
+	}
+}
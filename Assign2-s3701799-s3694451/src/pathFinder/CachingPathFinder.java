@@ -0,0 +1,142 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Bounded LRU cache of paths in front of another PathFinder on the same map.
+ * Paths are keyed by the query (origins, destinations, waypoints), the mode of the finder
+ * (whether a DijkstraPathFinder reorders the waypoints) and the version of the map.
+ * Any change to the map bumps its version, which drops every cached path before the next lookup.
+ * Once the cache is full, the least recently used path is evicted.
+ */
+public class CachingPathFinder implements PathFinder
+{
+	private final PathMap map;
+	private final PathFinder finder;
+	private final int capacity;
+	private final LinkedHashMap<Key, List<Coordinate>> paths;
+	// version of the map the cached paths were found on
+	private long version;
+	private long hits=0, misses=0, evictions=0, invalidations=0;
+
+	/**
+	 * @param map The map the finder searches.
+	 * @param finder Finder used for the queries that are not cached.
+	 * @param capacity Largest number of paths kept.
+	 */
+	public CachingPathFinder(PathMap map, PathFinder finder, int capacity)
+	{
+		if(capacity<1)
+			throw new IllegalArgumentException("Cache capacity must be positive, got " + capacity + ".");
+		this.map=map;
+		this.finder=finder;
+		this.capacity=capacity;
+		this.version=map.getVersion();
+		//access order, so the first entry is the least recently used one
+		paths=new LinkedHashMap<Key, List<Coordinate>>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, List<Coordinate>> eldest)
+			{
+				if(size()<=CachingPathFinder.this.capacity)
+					return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	@Override
+	public List<Coordinate> findPath()
+	{
+		//paths of an older version of the map can never be hit again
+		if(map.getVersion()!=version)
+		{
+			invalidations+=paths.size();
+			paths.clear();
+			version=map.getVersion();
+		}
+		Key key=new Key(PathQuery.of(map), reordersWaypoints(), version);
+		List<Coordinate> path=paths.get(key);
+		if(path!=null)
+		{
+			hits++;
+			return new ArrayList<Coordinate>(path);
+		}
+		misses++;
+		path=finder.findPath();
+		paths.put(key, new ArrayList<Coordinate>(path));
+		return path;
+	}
+
+	//cells explored by the wrapped finder, cache hits explore none
+	@Override
+	public int coordinatesExplored()
+	{
+		return finder.coordinatesExplored();
+	}
+
+	//the mode is read on every lookup, since it can be changed on the finder after paths are cached
+	private boolean reordersWaypoints()
+	{
+		return finder instanceof DijkstraPathFinder && ((DijkstraPathFinder) finder).isReorderWaypoints();
+	}
+
+	public int size() { return paths.size(); }
+
+	public int capacity() { return capacity; }
+
+	public long hits() { return hits; }
+
+	public long misses() { return misses; }
+
+	//paths dropped because the cache was full
+	public long evictions() { return evictions; }
+
+	//paths dropped because the map changed
+	public long invalidations() { return invalidations; }
+
+	public double hitRate()
+	{
+		return hits+misses==0 ? 0 : (double) hits/(hits+misses);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d/%d paths cached: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d invalidations",
+			paths.size(), capacity, hits, misses, 100*hitRate(), evictions, invalidations);
+	}
+
+	//a query in one mode of the finder on one version of the map
+	private static final class Key
+	{
+		private final PathQuery query;
+		private final boolean reorderWaypoints;
+		private final long version;
+
+		Key(PathQuery query, boolean reorderWaypoints, long version)
+		{
+			this.query=query;
+			this.reorderWaypoints=reorderWaypoints;
+			this.version=version;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Key))
+				return false;
+			Key k=(Key) o;
+			return version==k.version && reorderWaypoints==k.reorderWaypoints && query.equals(k.query);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31*(31*query.hashCode()+Boolean.hashCode(reorderWaypoints))+Long.hashCode(version);
+		}
+	}
+}
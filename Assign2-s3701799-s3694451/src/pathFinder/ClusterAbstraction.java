@@ -0,0 +1,358 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.CompactGrid;
+import map.PathMap;
+
+/**
+ * Abstract graph of a map for hierarchical path finding (HPA*).
+ * The map is split into square clusters. Along every border between two clusters each run of
+ * passable cell pairs is cut into segments of at most entranceWidth cells, and the middle pair of
+ * each segment becomes an entrance: both of its cells are abstract nodes, joined by inter edges.
+ * Every pair of nodes in the same cluster is joined by an intra edge with the cost of the shortest
+ * path between them inside the cluster. The intra edges are computed per cluster in parallel.
+ * <p>
+ * With an entrance width of 1 every border crossing is an entrance and the abstract graph gives exact
+ * shortest paths; wider entrances make the graph smaller and the paths slightly longer.
+ * The abstraction is built for the map as it is at construction time, and is stale once the map changes.
+ */
+public class ClusterAbstraction
+{
+	public static final int DEFAULT_CLUSTER_SIZE=16;
+	public static final int DEFAULT_ENTRANCE_WIDTH=6;
+	// clusters computed sequentially by each fork-join task
+	private static final int CLUSTERS_PER_TASK=8;
+
+	private final PathMap map;
+	private final int clusterSize;
+	private final int entranceWidth;
+	private final int clusterRows;
+	private final int clusterCols;
+	// version of the map the abstraction was built on
+	private final long mapVersion;
+
+	// abstract node -> cell index, cell index -> abstract node (or -1), abstract node -> cluster
+	private int[] nodeCell;
+	private int[] nodeOfCell;
+	private int[] nodeCluster;
+	// abstract nodes of each cluster
+	private int[][] clusterNodes;
+	// edges in compressed rows: the edges of node u are edgeStart[u] .. edgeStart[u+1]-1
+	private int[] edgeStart;
+	private int[] edgeTarget;
+	private int[] edgeCost;
+
+	//builds the abstraction with the default cluster size and entrance width
+	public ClusterAbstraction(PathMap map)
+	{
+		this(map, DEFAULT_CLUSTER_SIZE, DEFAULT_ENTRANCE_WIDTH);
+	}
+
+	public ClusterAbstraction(PathMap map, int clusterSize, int entranceWidth)
+	{
+		if(clusterSize<1 || entranceWidth<1)
+			throw new IllegalArgumentException("Cluster size and entrance width must be 1 or more.");
+		this.map=map;
+		this.clusterSize=clusterSize;
+		this.entranceWidth=entranceWidth;
+		clusterRows=(map.sizeR+clusterSize-1)/clusterSize;
+		clusterCols=(map.sizeC+clusterSize-1)/clusterSize;
+		mapVersion=map.getVersion();
+		build();
+	}
+
+	public int clusterSize() { return clusterSize; }
+
+	public int entranceWidth() { return entranceWidth; }
+
+	public int clusterCount() { return clusterRows*clusterCols; }
+
+	public int nodeCount() { return nodeCell.length; }
+
+	public int edgeCount() { return edgeTarget.length; }
+
+	//whether the abstraction is still that of the map, it is not once the map has changed
+	public boolean isValidFor(PathMap map)
+	{
+		return map==this.map && map.getVersion()==mapVersion;
+	}
+
+	int nodeCell(int node) { return nodeCell[node]; }
+
+	int nodeCluster(int node) { return nodeCluster[node]; }
+
+	int[] clusterNodes(int cluster) { return clusterNodes[cluster]; }
+
+	int edgeStart(int node) { return edgeStart[node]; }
+
+	int edgeTarget(int edge) { return edgeTarget[edge]; }
+
+	int edgeCost(int edge) { return edgeCost[edge]; }
+
+	//returns the cluster that contains the cell
+	int clusterOf(int cell)
+	{
+		return (cell/map.sizeC/clusterSize)*clusterCols+(cell%map.sizeC)/clusterSize;
+	}
+
+	private void build()
+	{
+		int n=map.sizeR*map.sizeC;
+		nodeOfCell=new int[n];
+		Arrays.fill(nodeOfCell, -1);
+		// at most one inter edge each way per border crossing
+		int maxInter=2*(map.sizeR*Math.max(0, clusterCols-1)+map.sizeC*Math.max(0, clusterRows-1));
+		int[] interFrom=new int[maxInter];
+		int[] interTo=new int[maxInter];
+		int interCount=0;
+		List<Integer> cells=new ArrayList<Integer>();
+
+		//vertical borders, between column c-1 and c
+		for(int c=clusterSize;c<map.sizeC;c+=clusterSize)
+			for(int r0=0;r0<map.sizeR;r0+=clusterSize)
+			{
+				int r1=Math.min(r0+clusterSize, map.sizeR);
+				int run=r0;
+				for(int r=r0;r<=r1;++r)
+				{
+					if(r<r1 && map.isPassable(r, c-1) && map.isPassable(r, c))
+						continue;
+					for(int s=run;s<r;s+=entranceWidth)
+					{
+						int mid=(s+Math.min(s+entranceWidth, r)-1)/2;
+						interFrom[interCount]=addNode(mid*map.sizeC+c-1, cells);
+						interTo[interCount++]=addNode(mid*map.sizeC+c, cells);
+					}
+					run=r+1;
+				}
+			}
+		//horizontal borders, between row r-1 and r
+		for(int r=clusterSize;r<map.sizeR;r+=clusterSize)
+			for(int c0=0;c0<map.sizeC;c0+=clusterSize)
+			{
+				int c1=Math.min(c0+clusterSize, map.sizeC);
+				int run=c0;
+				for(int c=c0;c<=c1;++c)
+				{
+					if(c<c1 && map.isPassable(r-1, c) && map.isPassable(r, c))
+						continue;
+					for(int s=run;s<c;s+=entranceWidth)
+					{
+						int mid=(s+Math.min(s+entranceWidth, c)-1)/2;
+						interFrom[interCount]=addNode((r-1)*map.sizeC+mid, cells);
+						interTo[interCount++]=addNode(r*map.sizeC+mid, cells);
+					}
+					run=c+1;
+				}
+			}
+
+		int nodes=cells.size();
+		nodeCell=new int[nodes];
+		nodeCluster=new int[nodes];
+		int[] clusterSizes=new int[clusterCount()];
+		for(int i=0;i<nodes;++i)
+		{
+			nodeCell[i]=cells.get(i);
+			nodeCluster[i]=clusterOf(nodeCell[i]);
+			clusterSizes[nodeCluster[i]]++;
+		}
+		clusterNodes=new int[clusterCount()][];
+		for(int i=0;i<clusterNodes.length;++i)
+			clusterNodes[i]=new int[clusterSizes[i]];
+		Arrays.fill(clusterSizes, 0);
+		for(int i=0;i<nodes;++i)
+			clusterNodes[nodeCluster[i]][clusterSizes[nodeCluster[i]]++]=i;
+
+		//intra edge costs of each cluster as a matrix between its nodes
+		int[][] intraCosts=new int[clusterCount()][];
+		ForkJoinPool.commonPool().invoke(new IntraEdgeTask(0, clusterCount(), intraCosts));
+
+		//count then fill the edges of every node, inter edges go both ways
+		edgeStart=new int[nodes+1];
+		for(int i=0;i<interCount;++i)
+		{
+			edgeStart[interFrom[i]+1]++;
+			edgeStart[interTo[i]+1]++;
+		}
+		for(int cl=0;cl<clusterCount();++cl)
+		{
+			int m=clusterNodes[cl].length;
+			for(int i=0;i<m;++i)
+				for(int j=0;j<m;++j)
+					if(i!=j && intraCosts[cl][i*m+j]!=Integer.MAX_VALUE)
+						edgeStart[clusterNodes[cl][i]+1]++;
+		}
+		for(int i=0;i<nodes;++i)
+			edgeStart[i+1]+=edgeStart[i];
+		edgeTarget=new int[edgeStart[nodes]];
+		edgeCost=new int[edgeStart[nodes]];
+		int[] fill=Arrays.copyOf(edgeStart, nodes);
+		for(int i=0;i<interCount;++i)
+		{
+			int a=interFrom[i], b=interTo[i];
+			addEdge(fill, a, b, terrainCost(nodeCell[b]));
+			addEdge(fill, b, a, terrainCost(nodeCell[a]));
+		}
+		for(int cl=0;cl<clusterCount();++cl)
+		{
+			int m=clusterNodes[cl].length;
+			for(int i=0;i<m;++i)
+				for(int j=0;j<m;++j)
+					if(i!=j && intraCosts[cl][i*m+j]!=Integer.MAX_VALUE)
+						addEdge(fill, clusterNodes[cl][i], clusterNodes[cl][j], intraCosts[cl][i*m+j]);
+		}
+	}
+
+	//returns the node of the cell, creating it if needed
+	private int addNode(int cell, List<Integer> cells)
+	{
+		if(nodeOfCell[cell]==-1)
+		{
+			nodeOfCell[cell]=cells.size();
+			cells.add(cell);
+		}
+		return nodeOfCell[cell];
+	}
+
+	private void addEdge(int[] fill, int from, int to, int cost)
+	{
+		edgeTarget[fill[from]]=to;
+		edgeCost[fill[from]++]=cost;
+	}
+
+	private int terrainCost(int cell)
+	{
+		return map.getGrid().terrainCost(cell);
+	}
+
+	//computes the intra edge matrices of a range of clusters, splitting the range between workers
+	private class IntraEdgeTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+
+		private final int from, to;
+		private final int[][] intraCosts;
+
+		IntraEdgeTask(int from, int to, int[][] intraCosts)
+		{
+			this.from=from;
+			this.to=to;
+			this.intraCosts=intraCosts;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to-from<=CLUSTERS_PER_TASK)
+			{
+				LocalSearch search=new LocalSearch();
+				int[] seed=new int[1];
+				for(int cl=from;cl<to;++cl)
+				{
+					int[] nodes=clusterNodes[cl];
+					int m=nodes.length;
+					int[] costs=new int[m*m];
+					for(int i=0;i<m;++i)
+					{
+						seed[0]=nodeCell[nodes[i]];
+						search.run(cl, seed, false, -1);
+						for(int j=0;j<m;++j)
+							costs[i*m+j]=search.distTo(nodeCell[nodes[j]]);
+					}
+					intraCosts[cl]=costs;
+				}
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new IntraEdgeTask(from, mid, intraCosts), new IntraEdgeTask(mid, to, intraCosts));
+		}
+	}
+
+	/**
+	 * Dijkstra restricted to the cells of one cluster.
+	 * A forward search gives the cost from the seeds to each cell, and links each cell to its parent.
+	 * A reverse search gives the cost from each cell to the nearest seed, and links each cell to the next cell.
+	 */
+	class LocalSearch
+	{
+		private final int[] dist=new int[clusterSize*clusterSize];
+		private final int[] link=new int[clusterSize*clusterSize];
+		private final IndexedMinHeap open=new IndexedMinHeap(clusterSize*clusterSize);
+		private int r0, c0, rows, cols;
+		private boolean reverse;
+		// number of cells settled by all runs
+		int settled=0;
+
+		//runs the search from the seed cells of the cluster, stopping early once stopCell is settled
+		void run(int cluster, int[] seeds, boolean reverse, int stopCell)
+		{
+			this.reverse=reverse;
+			r0=cluster/clusterCols*clusterSize;
+			c0=cluster%clusterCols*clusterSize;
+			rows=Math.min(clusterSize, map.sizeR-r0);
+			cols=Math.min(clusterSize, map.sizeC-c0);
+			Arrays.fill(dist, 0, rows*cols, Integer.MAX_VALUE);
+			Arrays.fill(link, 0, rows*cols, -1);
+			open.clear();
+			for(int s : seeds)
+			{
+				int l=toLocal(s);
+				if(l>=0 && map.isPassable(s/map.sizeC, s%map.sizeC))
+				{
+					dist[l]=0;
+					open.insertOrDecrease(l, 0);
+				}
+			}
+
+			CompactGrid grid=map.getGrid();
+			while(!open.isEmpty())
+			{
+				int v=open.poll();
+				settled++;
+				int r=v/cols, c=v%cols;
+				if(stopCell>=0 && toLocal(stopCell)==v)
+					break;
+				for(int d=0;d<4;++d)
+				{
+					int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+					if(nr<0 || nr>=rows || nc<0 || nc>=cols || !grid.isPassable((r0+nr)*map.sizeC+c0+nc))
+						continue;
+					int w=nr*cols+nc;
+					int step=grid.terrainCost(reverse ? (r0+r)*map.sizeC+c0+c : (r0+nr)*map.sizeC+c0+nc);
+					if(dist[v]+step<dist[w])
+					{
+						dist[w]=dist[v]+step;
+						link[w]=v;
+						open.insertOrDecrease(w, dist[w]);
+					}
+				}
+			}
+		}
+
+		//cost between the cell and the seeds, MAX_VALUE if not reached or outside the cluster
+		int distTo(int cell)
+		{
+			int l=toLocal(cell);
+			return l<0 ? Integer.MAX_VALUE : dist[l];
+		}
+
+		//cells from a seed to the cell for a forward search, or from the cell to a seed for a reverse one
+		List<Integer> path(int cell)
+		{
+			List<Integer> cells=new ArrayList<Integer>();
+			for(int l=toLocal(cell);l!=-1;l=link[l])
+				cells.add((r0+l/cols)*map.sizeC+c0+l%cols);
+			if(!reverse)
+				Collections.reverse(cells);
+			return cells;
+		}
+
+		private int toLocal(int cell)
+		{
+			int r=cell/map.sizeC-r0, c=cell%map.sizeC-c0;
+			return r<0 || r>=rows || c<0 || c>=cols ? -1 : r*cols+c;
+		}
+	}
+}
@@ -0,0 +1,378 @@
+package pathFinder;
+
+import java.util.*;
+import map.CompactGrid;
+import map.PathMap;
+
+/**
+ * Contraction hierarchy of the grid graph of a map, for maps that do not change.
+ * Every passable cell is a node with an arc to each passable neighbour, costing the terrain cost
+ * of the neighbour. Nodes are contracted one at a time, fewest added shortcuts first, and a shortcut
+ * u->w through the contracted node v is only added when a bounded witness search finds no path from u
+ * to w avoiding v that is as cheap. What is kept afterwards is the upward graph: the arcs from each
+ * node to higher ranked nodes, and the arcs into each node from higher ranked nodes.
+ * The hierarchy is built for the map as it is at construction time, and is stale once the map changes.
+ */
+public class ContractionHierarchy
+{
+	// cells settled by a witness search before it gives up and the shortcut is added
+	private static final int WITNESS_SETTLE_LIMIT=500;
+
+	private final int sizeR, sizeC;
+	// version of the map the hierarchy was built on
+	private final long mapVersion;
+	private final int nodes;
+	private final int[] rank;
+	// upward arcs u->w (rank w > rank u) stored at u, edges of u are outStart[u] .. outStart[u+1]-1
+	private int[] outStart, outTarget, outCost, outMiddle;
+	// upward arcs w->u (rank w > rank u) stored at u
+	private int[] inStart, inSource, inCost, inMiddle;
+	private int shortcuts=0;
+
+	// arcs during contraction, as (node, cost, middle) triples, middle is -1 for an original arc
+	private ArcPool out, in;
+	// witness search state, cells touched are reset after each search
+	private int[] witnessDist;
+	private int[] touched;
+	private int touchedCount;
+	private IndexedMinHeap witnessOpen;
+
+	public ContractionHierarchy(PathMap map)
+	{
+		sizeR=map.sizeR;
+		sizeC=map.sizeC;
+		mapVersion=map.getVersion();
+		nodes=map.sizeR*map.sizeC;
+		rank=new int[nodes];
+		CompactGrid grid=map.getGrid();
+		//impassable cells have no arcs, and passable ones room for exactly their original arcs
+		int[] degree=new int[nodes];
+		for(int r=0;r<map.sizeR;++r)
+			for(int c=0;c<map.sizeC;++c)
+				for(int d=0;d<4;++d)
+					if(grid.isPassable(r, c) && grid.isPassable(r+GridPathFinder.DR[d], c+GridPathFinder.DC[d]))
+						degree[r*map.sizeC+c]++;
+		out=new ArcPool(degree);
+		in=new ArcPool(degree);
+		degree=null;
+		for(int r=0;r<map.sizeR;++r)
+			for(int c=0;c<map.sizeC;++c)
+				for(int d=0;d<4;++d)
+					if(grid.isPassable(r, c) && grid.isPassable(r+GridPathFinder.DR[d], c+GridPathFinder.DC[d]))
+					{
+						int w=(r+GridPathFinder.DR[d])*map.sizeC+c+GridPathFinder.DC[d];
+						addArc(r*map.sizeC+c, w, grid.terrainCost(w), -1);
+					}
+		contractAll(grid);
+	}
+
+	public int nodeCount() { return nodes; }
+
+	public int shortcutCount() { return shortcuts; }
+
+	//whether the hierarchy is still that of the map, it is not once the map has changed
+	public boolean isValidFor(PathMap map)
+	{
+		return map.sizeR==sizeR && map.sizeC==sizeC && map.getVersion()==mapVersion;
+	}
+
+	int rank(int node) { return rank[node]; }
+
+	int outStart(int node) { return outStart[node]; }
+
+	int outTarget(int edge) { return outTarget[edge]; }
+
+	int outCost(int edge) { return outCost[edge]; }
+
+	int inStart(int node) { return inStart[node]; }
+
+	int inSource(int edge) { return inSource[edge]; }
+
+	int inCost(int edge) { return inCost[edge]; }
+
+	//returns the node a shortcut u->w was contracted through, or -1 for an original arc
+	int middle(int u, int w)
+	{
+		if(rank[w]>rank[u])
+		{
+			for(int e=outStart[u];e<outStart[u+1];++e)
+				if(outTarget[e]==w)
+					return outMiddle[e];
+		}
+		else
+		{
+			for(int e=inStart[w];e<inStart[w+1];++e)
+				if(inSource[e]==u)
+					return inMiddle[e];
+		}
+		throw new IllegalStateException("No arc between nodes " + u + " and " + w + ".");
+	}
+
+	//adds the cells of the arc u->w to the list, without u, expanding shortcuts
+	void unpack(int u, int w, List<Integer> cells)
+	{
+		Deque<int[]> stack=new ArrayDeque<int[]>();
+		stack.push(new int[]{u, w});
+		while(!stack.isEmpty())
+		{
+			int[] arc=stack.pop();
+			int mid=middle(arc[0], arc[1]);
+			if(mid==-1)
+				cells.add(arc[1]);
+			else
+			{
+				stack.push(new int[]{mid, arc[1]});
+				stack.push(new int[]{arc[0], mid});
+			}
+		}
+	}
+
+	//contracts nodes in order of priority, re-evaluating a node's priority lazily when it comes up
+	private void contractAll(CompactGrid grid)
+	{
+		witnessDist=new int[nodes];
+		Arrays.fill(witnessDist, Integer.MAX_VALUE);
+		touched=new int[nodes];
+		witnessOpen=new IndexedMinHeap(nodes);
+		int[] contractedNeighbours=new int[nodes];
+		boolean[] contracted=new boolean[nodes];
+
+		IndexedMinHeap queue=new IndexedMinHeap(nodes);
+		for(int v=0;v<nodes;++v)
+			if(grid.isPassable(v))
+				queue.insertOrDecrease(v, priority(v, 0));
+
+		int next=0;
+		while(!queue.isEmpty())
+		{
+			int v=queue.poll();
+			int p=priority(v, contractedNeighbours[v]);
+			if(!queue.isEmpty() && p>queue.peekKey())
+			{
+				queue.insertOrDecrease(v, p);
+				continue;
+			}
+			contract(v, false);
+			contracted[v]=true;
+			rank[v]=next++;
+			for(int i=0;i<out.length(v);i+=3)
+				contractedNeighbours[out.get(v, i)]++;
+			for(int i=0;i<in.length(v);i+=3)
+				contractedNeighbours[in.get(v, i)]++;
+		}
+		freeze();
+		out=null;
+		in=null;
+		witnessDist=null;
+		touched=null;
+		witnessOpen=null;
+	}
+
+	//edge difference plus the number of neighbours already contracted
+	private int priority(int v, int contractedNeighbours)
+	{
+		return contract(v, true)-out.length(v)/3-in.length(v)/3+contractedNeighbours;
+	}
+
+	//adds the shortcuts needed to remove v from the graph, or only counts them when simulating
+	private int contract(int v, boolean simulate)
+	{
+		int count=0;
+		List<int[]> added=simulate ? null : new ArrayList<int[]>();
+		for(int i=0;i<in.length(v);i+=3)
+		{
+			int u=in.get(v, i), toV=in.get(v, i+1);
+			int limit=0;
+			for(int j=0;j<out.length(v);j+=3)
+				if(out.get(v, j)!=u)
+					limit=Math.max(limit, toV+out.get(v, j+1));
+			if(limit==0)
+				continue;
+			witnessSearch(u, v, limit);
+			for(int j=0;j<out.length(v);j+=3)
+			{
+				int w=out.get(v, j), cost=toV+out.get(v, j+1);
+				if(w!=u && witnessDist[w]>cost)
+				{
+					count++;
+					if(!simulate)
+						added.add(new int[]{u, w, cost});
+				}
+			}
+			resetWitness();
+		}
+		if(!simulate)
+		{
+			for(int i=0;i<in.length(v);i+=3)
+				out.remove(in.get(v, i), v);
+			for(int i=0;i<out.length(v);i+=3)
+				in.remove(out.get(v, i), v);
+			for(int[] s : added)
+				if(addArc(s[0], s[1], s[2], v))
+					shortcuts++;
+		}
+		return count;
+	}
+
+	//Dijkstra from u among the remaining nodes without v, up to the cost limit
+	private void witnessSearch(int u, int v, int limit)
+	{
+		witnessOpen.clear();
+		touch(u, 0);
+		witnessOpen.insertOrDecrease(u, 0);
+		int settled=0;
+		while(!witnessOpen.isEmpty() && witnessOpen.peekKey()<=limit && settled++<WITNESS_SETTLE_LIMIT)
+		{
+			int x=witnessOpen.poll();
+			for(int i=0;i<out.length(x);i+=3)
+			{
+				int y=out.get(x, i);
+				int cost=witnessDist[x]+out.get(x, i+1);
+				if(y!=v && cost<witnessDist[y])
+				{
+					touch(y, cost);
+					witnessOpen.insertOrDecrease(y, cost);
+				}
+			}
+		}
+	}
+
+	private void touch(int x, int cost)
+	{
+		if(witnessDist[x]==Integer.MAX_VALUE)
+			touched[touchedCount++]=x;
+		witnessDist[x]=cost;
+	}
+
+	private void resetWitness()
+	{
+		for(int i=0;i<touchedCount;++i)
+			witnessDist[touched[i]]=Integer.MAX_VALUE;
+		touchedCount=0;
+	}
+
+	//adds the arc u->w, or lowers the cost of an existing one; returns true if a new arc was added
+	private boolean addArc(int u, int w, int cost, int middle)
+	{
+		for(int i=0;i<out.length(u);i+=3)
+			if(out.get(u, i)==w)
+			{
+				if(cost<out.get(u, i+1))
+				{
+					out.set(u, i+1, cost);
+					out.set(u, i+2, middle);
+					for(int j=0;j<in.length(w);j+=3)
+						if(in.get(w, j)==u)
+						{
+							in.set(w, j+1, cost);
+							in.set(w, j+2, middle);
+						}
+				}
+				return false;
+			}
+		out.append(u, w, cost, middle);
+		in.append(w, u, cost, middle);
+		return true;
+	}
+
+	//the arcs left at each node when it was contracted all lead to higher ranked nodes
+	private void freeze()
+	{
+		outStart=new int[nodes+1];
+		inStart=new int[nodes+1];
+		for(int v=0;v<nodes;++v)
+		{
+			outStart[v+1]=outStart[v]+out.length(v)/3;
+			inStart[v+1]=inStart[v]+in.length(v)/3;
+		}
+		outTarget=new int[outStart[nodes]];
+		outCost=new int[outStart[nodes]];
+		outMiddle=new int[outStart[nodes]];
+		inSource=new int[inStart[nodes]];
+		inCost=new int[inStart[nodes]];
+		inMiddle=new int[inStart[nodes]];
+		for(int v=0;v<nodes;++v)
+		{
+			for(int i=0, e=outStart[v];i<out.length(v);i+=3, ++e)
+			{
+				outTarget[e]=out.get(v, i);
+				outCost[e]=out.get(v, i+1);
+				outMiddle[e]=out.get(v, i+2);
+			}
+			for(int i=0, e=inStart[v];i<in.length(v);i+=3, ++e)
+			{
+				inSource[e]=in.get(v, i);
+				inCost[e]=in.get(v, i+1);
+				inMiddle[e]=in.get(v, i+2);
+			}
+		}
+	}
+
+	/**
+	 * Arcs of every node packed in one array, as (node, cost, middle) triples. The arcs of a node
+	 * are a slot of the array, laid out in node order at first. A node whose slot is full moves its
+	 * arcs to a slot twice the size at the end of the array, the slot it leaves is not reused.
+	 */
+	private static final class ArcPool
+	{
+		private int[] arcs;
+		// first entry, entries used and entries available of the slot of each node
+		private final int[] start, length, capacity;
+		// entries of the array handed out to slots
+		private int used;
+
+		//room for the given number of arcs at each node
+		ArcPool(int[] arcCount)
+		{
+			int nodes=arcCount.length;
+			start=new int[nodes];
+			length=new int[nodes];
+			capacity=new int[nodes];
+			for(int v=0;v<nodes;++v)
+			{
+				start[v]=used;
+				capacity[v]=3*arcCount[v];
+				used+=capacity[v];
+			}
+			arcs=new int[Math.max(16, used+used/2)];
+		}
+
+		//entries of the arcs of the node, 3 per arc
+		int length(int v) { return length[v]; }
+
+		int get(int v, int i) { return arcs[start[v]+i]; }
+
+		void set(int v, int i, int value) { arcs[start[v]+i]=value; }
+
+		void append(int v, int to, int cost, int middle)
+		{
+			if(length[v]==capacity[v])
+			{
+				int size=Math.max(6, 2*capacity[v]);
+				if(used+size>arcs.length)
+					arcs=Arrays.copyOf(arcs, Math.max(used+size, arcs.length+arcs.length/2));
+				System.arraycopy(arcs, start[v], arcs, used, length[v]);
+				start[v]=used;
+				capacity[v]=size;
+				used+=size;
+			}
+			int e=start[v]+length[v];
+			arcs[e]=to;
+			arcs[e+1]=cost;
+			arcs[e+2]=middle;
+			length[v]+=3;
+		}
+
+		//removes the arc of the node to the given node, moving its last arc in its place
+		void remove(int v, int to)
+		{
+			for(int i=0;i<length[v];i+=3)
+				if(arcs[start[v]+i]==to)
+				{
+					length[v]-=3;
+					System.arraycopy(arcs, start[v]+length[v], arcs, start[v]+i, 3);
+					return;
+				}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Point to point queries on a ContractionHierarchy.
+ * A forward search from the sources and a backward search from the targets both only follow arcs
+ * to higher ranked nodes, and the shortest path is the best node reached by both. Each side stops once
+ * its smallest key is no better than the best path found. Shortcuts on the path are then unpacked into cells.
+ * A hierarchy built before the map last changed is rebuilt before the next query.
+ */
+public class ContractionHierarchyPathFinder extends GridPathFinder
+{
+	private ContractionHierarchy hierarchy;
+	// search state kept between queries, only the nodes touched by a query are reset
+	private int[] forwardCost, backwardCost, parent, next;
+	private int[] touched;
+	private int touchedCount=0;
+	private IndexedMinHeap forward, backward;
+
+	//constructor initialized with the map, builds the hierarchy
+	public ContractionHierarchyPathFinder(PathMap map)
+	{
+		this(map, new ContractionHierarchy(map));
+	}
+
+	//constructor sharing a hierarchy already built for the map
+	public ContractionHierarchyPathFinder(PathMap map, ContractionHierarchy hierarchy)
+	{
+		super(map);
+		this.hierarchy=hierarchy;
+		allocate();
+	}
+
+	public ContractionHierarchy hierarchy() { return hierarchy; }
+
+	//search state for the nodes of the hierarchy
+	private void allocate()
+	{
+		int n=hierarchy.nodeCount();
+		forwardCost=new int[n];
+		backwardCost=new int[n];
+		parent=new int[n];
+		next=new int[n];
+		touched=new int[n];
+		Arrays.fill(forwardCost, Integer.MAX_VALUE);
+		Arrays.fill(backwardCost, Integer.MAX_VALUE);
+		forward=new IndexedMinHeap(n);
+		backward=new IndexedMinHeap(n);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		//shortcuts of an older version of the map can be too cheap or cross cells that are now blocked
+		if(!hierarchy.isValidFor(map))
+		{
+			hierarchy=new ContractionHierarchy(map);
+			allocate();
+		}
+		forward.clear();
+		backward.clear();
+		for(int s : passableIndices(sources))
+		{
+			touch(s);
+			forwardCost[s]=0;
+			parent[s]=-1;
+			forward.insertOrDecrease(s, 0);
+		}
+		for(int t : passableIndices(targets))
+		{
+			touch(t);
+			backwardCost[t]=0;
+			next[t]=-1;
+			backward.insertOrDecrease(t, 0);
+		}
+
+		int best=Integer.MAX_VALUE;
+		int meet=-1;
+		while(true)
+		{
+			boolean forwardOpen=!forward.isEmpty() && forward.peekKey()<best;
+			boolean backwardOpen=!backward.isEmpty() && backward.peekKey()<best;
+			if(!forwardOpen && !backwardOpen)
+				break;
+			coordinatesExplored++;
+			if(forwardOpen && (!backwardOpen || forward.peekKey()<=backward.peekKey()))
+			{
+				int u=forward.poll();
+				if(backwardCost[u]!=Integer.MAX_VALUE && forwardCost[u]+backwardCost[u]<best)
+				{
+					best=forwardCost[u]+backwardCost[u];
+					meet=u;
+				}
+				for(int e=hierarchy.outStart(u);e<hierarchy.outStart(u+1);++e)
+				{
+					int w=hierarchy.outTarget(e);
+					int cost=forwardCost[u]+hierarchy.outCost(e);
+					if(cost<forwardCost[w])
+					{
+						touch(w);
+						forwardCost[w]=cost;
+						parent[w]=u;
+						forward.insertOrDecrease(w, cost);
+					}
+				}
+			}
+			else
+			{
+				int u=backward.poll();
+				if(forwardCost[u]!=Integer.MAX_VALUE && forwardCost[u]+backwardCost[u]<best)
+				{
+					best=forwardCost[u]+backwardCost[u];
+					meet=u;
+				}
+				for(int e=hierarchy.inStart(u);e<hierarchy.inStart(u+1);++e)
+				{
+					int w=hierarchy.inSource(e);
+					int cost=backwardCost[u]+hierarchy.inCost(e);
+					if(cost<backwardCost[w])
+					{
+						touch(w);
+						backwardCost[w]=cost;
+						next[w]=u;
+						backward.insertOrDecrease(w, cost);
+					}
+				}
+			}
+		}
+
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		if(meet!=-1)
+		{
+			List<Integer> chain=new ArrayList<Integer>();
+			for(int u=meet;u!=-1;u=parent[u])
+				chain.add(u);
+			Collections.reverse(chain);
+			for(int u=next[meet];u!=-1;u=next[u])
+				chain.add(u);
+			List<Integer> cells=new ArrayList<Integer>();
+			cells.add(chain.get(0));
+			for(int i=1;i<chain.size();++i)
+				hierarchy.unpack(chain.get(i-1), chain.get(i), cells);
+			for(int cell : cells)
+				path.add(cellAt(cell));
+		}
+		reset();
+		return path;
+	}
+
+	//remembers a node whose search state has to be reset after the query
+	private void touch(int node)
+	{
+		if(forwardCost[node]==Integer.MAX_VALUE && backwardCost[node]==Integer.MAX_VALUE)
+			touched[touchedCount++]=node;
+	}
+
+	private void reset()
+	{
+		for(int i=0;i<touchedCount;++i)
+		{
+			forwardCost[touched[i]]=Integer.MAX_VALUE;
+			backwardCost[touched[i]]=Integer.MAX_VALUE;
+		}
+		touchedCount=0;
+	}
+}
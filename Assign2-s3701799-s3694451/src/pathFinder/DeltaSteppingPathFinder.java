@@ -0,0 +1,342 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import map.CompactGrid;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Parallel shortest paths by delta-stepping (Meyer and Sanders), for maps too large for one core.
+ * Cells wait in buckets of costs delta wide. All the cells of the lowest bucket are expanded at once,
+ * first along light steps (into cells with a terrain cost of at most delta), which can put cells back
+ * in the same bucket, until it stays empty, then once along heavy steps, which always land in a later bucket.
+ * The expansions are split between the workers of the pool, which lower the shared costs with
+ * compare-and-set and no locks. A cell lowered again is in a bucket twice, the stale entry is skipped.
+ * A wider delta gives the workers more cells per bucket but expands some cells more than once,
+ * by default it is tuned from the terrain costs of the map (see tunedDelta).
+ * The costs, buckets and scratch arrays are kept across searches: the stored costs of a search start
+ * above every cost stored before, so the older ones read as unreached without clearing the array.
+ */
+public class DeltaSteppingPathFinder extends GridPathFinder
+{
+	// costs are read plus one, so that a cell not reached by this search reads as 0
+	private static final int UNREACHED=0;
+	// cells expanded by one task
+	private static final int GRAIN=1024;
+
+	private final ForkJoinPool pool;
+	// bucket width, 0 to tune it from the map
+	private int delta=0;
+	// bucket width and largest terrain cost of the map, as of version
+	private int width, maxCost;
+	private long version=-1;
+	// cost of each cell plus one, stored plus base, where a stored value up to base is not reached by this search
+	private AtomicIntegerArray cost=null;
+	private int base=0;
+	// largest value stored by the searches so far, the next search starts above it
+	private int highest=0;
+	// cells waiting in each bucket slot
+	private int[][] buckets=new int[0][];
+	private int[] bucketSize=new int[0];
+	// phase each cell was last expanded in, so that it is expanded once per phase
+	private int[] expanded=null;
+	private int phase=0;
+	// cells of the current bucket, and the cells settled in it so far
+	private int[] frontier=new int[16], settled=new int[16];
+	// leaf tasks of the last relax, merged by the caller
+	private final List<RelaxTask> done=new ArrayList<RelaxTask>();
+
+	//constructor initialized with the map, searches run on the common fork-join pool
+	public DeltaSteppingPathFinder(PathMap map)
+	{
+		this(map, ForkJoinPool.commonPool());
+	}
+
+	public DeltaSteppingPathFinder(PathMap map, ForkJoinPool pool)
+	{
+		super(map);
+		this.pool=pool;
+	}
+
+	//sets the bucket width, 0 to tune it from the terrain costs of the map
+	public void setDelta(int delta)
+	{
+		this.delta=delta;
+		version=-1;
+	}
+
+	/**
+	 * Bucket width for a grid: the mean terrain cost of its passable cells, rounded up.
+	 * Steps into the cheaper cells are then light, and on a map where all cells cost the same
+	 * a bucket is one level of a breadth-first search.
+	 */
+	public static int tunedDelta(CompactGrid grid)
+	{
+		long sum=0;
+		int count=0;
+		for(int cell=0;cell<grid.sizeR*grid.sizeC;++cell)
+			if(grid.isPassable(cell))
+			{
+				sum+=grid.terrainCost(cell);
+				count++;
+			}
+		return count==0 ? 1 : (int) Math.max(1, (sum+count-1)/count);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		if(map.getVersion()!=version)
+		{
+			width=delta>0 ? delta : tunedDelta(map.getGrid());
+			maxCost=terrainCostRange()[1];
+			version=map.getVersion();
+		}
+		int[] src=passableIndices(sources), dst=passableIndices(targets);
+		if(src.length==0 || dst.length==0)
+			return new ArrayList<Coordinate>();
+		Arrays.sort(src);
+
+		start();
+		//a step is at most maxCost, so the waiting cells are never more than this many buckets apart
+		int slots=Math.max(0, maxCost)/width+2;
+		if(buckets.length<slots)
+		{
+			buckets=Arrays.copyOf(buckets, slots);
+			bucketSize=Arrays.copyOf(bucketSize, slots);
+			for(int slot=0;slot<slots;++slot)
+				if(buckets[slot]==null)
+					buckets[slot]=new int[16];
+		}
+		//a search that stopped early leaves cells in its buckets
+		Arrays.fill(bucketSize, 0);
+		int pending=0;
+		for(int s : src)
+		{
+			cost.set(s, base+1);
+			bucketSize[0]=add(buckets, 0, bucketSize[0], s);
+			pending++;
+		}
+		highest=Math.max(highest, base+1);
+
+		int current=0;
+		int best=-1;
+		while(pending>0)
+		{
+			while(bucketSize[current%slots]==0)
+				current++;
+			int slot=current%slots;
+			int settledCount=0;
+			while(bucketSize[slot]>0)
+			{
+				//take the cells still in this bucket, and each of them only once
+				nextPhase();
+				if(frontier.length<bucketSize[slot])
+					frontier=new int[Math.max(2*frontier.length, bucketSize[slot])];
+				int count=0;
+				for(int i=0;i<bucketSize[slot];++i)
+				{
+					int cell=buckets[slot][i];
+					if((costOf(cell)-1)/width==current && expanded[cell]!=phase)
+					{
+						expanded[cell]=phase;
+						frontier[count++]=cell;
+					}
+				}
+				pending-=bucketSize[slot];
+				bucketSize[slot]=0;
+				coordinatesExplored+=count;
+				if(settledCount+count>settled.length)
+					settled=Arrays.copyOf(settled, Math.max(2*settled.length, settledCount+count));
+				System.arraycopy(frontier, 0, settled, settledCount, count);
+				settledCount+=count;
+				pending+=relax(frontier, count, true, slots);
+			}
+			pending+=relax(settled, settledCount, false, slots);
+			current++;
+
+			//every cost below the next bucket is final now
+			best=nearest(dst);
+			if(best!=-1 && costOf(best)-1<current*width)
+				break;
+		}
+		return best==-1 ? new ArrayList<Coordinate>() : walkBack(src, best);
+	}
+
+	//makes the cost array and the expanded phases ready for a search, reusing them from the last one
+	private void start()
+	{
+		if(cost==null || cost.length()!=cellCount())
+		{
+			cost=new AtomicIntegerArray(cellCount());
+			expanded=new int[cellCount()];
+			base=0;
+			highest=0;
+			phase=0;
+			return;
+		}
+		//the costs of this search are below cellCount*maxCost, so they fit above the highest stored value,
+		//else the array is cleared
+		long bound=(long) cellCount()*Math.max(1, maxCost)+1;
+		if(highest+bound>Integer.MAX_VALUE)
+		{
+			for(int cell=0;cell<cellCount();++cell)
+				cost.set(cell, UNREACHED);
+			highest=0;
+		}
+		base=highest;
+	}
+
+	//starts a new phase, so that no cell is marked as expanded in it
+	private void nextPhase()
+	{
+		if(++phase==Integer.MAX_VALUE)
+		{
+			Arrays.fill(expanded, 0);
+			phase=1;
+		}
+	}
+
+	//the cost of the cell plus one in this search, UNREACHED if the search has not reached it
+	private int costOf(int cell)
+	{
+		return Math.max(UNREACHED, cost.get(cell)-base);
+	}
+
+	//expands the cells along their light or heavy steps in parallel, and puts the cells lowered in their buckets
+	//returns the number of cells put in buckets
+	private int relax(int[] cells, int count, boolean light, int slots)
+	{
+		if(count==0)
+			return 0;
+		done.clear();
+		pool.invoke(new RelaxTask(cells, 0, count, light));
+		int added=0;
+		for(RelaxTask task : done)
+			for(int i=0;i<task.count;++i)
+			{
+				int cell=task.lowered[i];
+				int stored=cost.get(cell);
+				highest=Math.max(highest, stored);
+				int slot=((stored-base-1)/width)%slots;
+				bucketSize[slot]=add(buckets, slot, bucketSize[slot], cell);
+				added++;
+			}
+		return added;
+	}
+
+	//appends the cell to the bucket and returns its new size
+	private static int add(int[][] buckets, int slot, int size, int cell)
+	{
+		if(size==buckets[slot].length)
+			buckets[slot]=Arrays.copyOf(buckets[slot], 2*size);
+		buckets[slot][size]=cell;
+		return size+1;
+	}
+
+	//the reached target with the smallest cost, ties going to the lower cell index, -1 if none is reached
+	private int nearest(int[] targets)
+	{
+		int best=-1;
+		for(int t : targets)
+			if(costOf(t)!=UNREACHED && (best==-1 || costOf(t)<costOf(best) || (costOf(t)==costOf(best) && t<best)))
+				best=t;
+		return best;
+	}
+
+	//walks back from the target along neighbours whose cost plus the step is the cost of the cell
+	private List<Coordinate> walkBack(int[] sources, int cell)
+	{
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		int[] nbrs=new int[4];
+		path.add(cellAt(cell));
+		while(!(costOf(cell)==1 && Arrays.binarySearch(sources, cell)>=0))
+		{
+			int count=neighbours(cell, nbrs);
+			int prev=-1;
+			for(int i=0;i<count && prev==-1;++i)
+				if(costOf(nbrs[i])!=UNREACHED && costOf(nbrs[i])+terrainCost(cell)==costOf(cell))
+					prev=nbrs[i];
+			//only with zero terrain costs could the walk go round in circles
+			if(prev==-1 || path.size()>cellCount())
+				return new ArrayList<Coordinate>();
+			cell=prev;
+			path.add(cellAt(cell));
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	//expands a range of cells along their light or heavy steps, the cells it lowers are kept for the merge
+	private class RelaxTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+
+		private final int[] cells;
+		private final int from, to;
+		private final boolean light;
+		private int[] lowered;
+		private int count=0;
+
+		RelaxTask(int[] cells, int from, int to, boolean light)
+		{
+			this.cells=cells;
+			this.from=from;
+			this.to=to;
+			this.light=light;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to-from>GRAIN)
+			{
+				int mid=(from+to)>>>1;
+				invokeAll(new RelaxTask(cells, from, mid, light), new RelaxTask(cells, mid, to, light));
+				return;
+			}
+			CompactGrid grid=map.getGrid();
+			lowered=new int[16];
+			for(int i=from;i<to;++i)
+			{
+				int cell=cells[i];
+				int reached=costOf(cell);
+				int r=cell/map.sizeC, c=cell%map.sizeC;
+				for(int d=0;d<4;++d)
+				{
+					if(!grid.isPassable(r+DR[d], c+DC[d]))
+						continue;
+					int next=cell+DR[d]*map.sizeC+DC[d];
+					int step=grid.terrainCost(next);
+					if((step<=width)!=light)
+						continue;
+					lower(next, base+reached+step);
+				}
+			}
+			synchronized(done)
+			{
+				done.add(this);
+			}
+		}
+
+		//lowers the stored cost of the cell with compare-and-set, retrying while another worker lowers it to a cost still higher
+		private void lower(int cell, int newCost)
+		{
+			int old=cost.get(cell);
+			while(old<=base || newCost<old)
+			{
+				if(cost.compareAndSet(cell, old, newCost))
+				{
+					if(count==lowered.length)
+						lowered=Arrays.copyOf(lowered, 2*count);
+					lowered[count++]=cell;
+					return;
+				}
+				old=cost.get(cell);
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Dijkstra with a circular bucket queue (Dial's algorithm).
+ * Terrain costs are small positive integers, so a cell is never pushed more than
+ * the maximum terrain cost ahead of the current distance and maxCost+1 buckets are enough.
+ * A search costs O(V + D) where D is the distance of the nearest target.
+ */
+public class DialPathFinder extends GridPathFinder
+{
+	private int[][] buckets;
+	private int[] bucketSize;
+	// largest terrain cost plus one, as of version, so the map is only scanned when it changes
+	private int width;
+	private long version=-1;
+
+	//constructor initialized with the map
+	public DialPathFinder(PathMap map)
+	{
+		super(map);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		if(map.getVersion()!=version)
+		{
+			width=terrainCostRange()[1]+1;
+			version=map.getVersion();
+		}
+		if(buckets==null || buckets.length!=width)
+		{
+			buckets=new int[width][16];
+			bucketSize=new int[width];
+		}
+		else
+			Arrays.fill(bucketSize, 0);
+
+		SearchWorkspace workspace=SearchWorkspace.acquire(map);
+		try
+		{
+			return search(workspace, sources, targets, width);
+		}
+		finally
+		{
+			SearchWorkspace.release(map, workspace);
+		}
+	}
+
+	private List<Coordinate> search(SearchWorkspace workspace, List<Coordinate> sources, List<Coordinate> targets, int width)
+	{
+		for(int t : passableIndices(targets))
+			workspace.markTarget(t);
+
+		int pending=0;
+		for(int s : passableIndices(sources))
+			if(workspace.cost(s)!=0)
+			{
+				workspace.update(s, 0, -1);
+				push(0, s);
+				pending++;
+			}
+
+		int[] nbrs=new int[4];
+		for(int curr=0;pending>0;++curr)
+		{
+			int b=curr%width;
+			while(bucketSize[b]>0)
+			{
+				int v=buckets[b][--bucketSize[b]];
+				pending--;
+				//stale entry, the cell was improved or settled since it was pushed
+				if(workspace.isClosed(v) || workspace.cost(v)!=curr)
+					continue;
+				workspace.close(v);
+				coordinatesExplored++;
+				if(workspace.isTarget(v))
+					return buildPath(workspace, v);
+
+				int count=neighbours(v, nbrs);
+				for(int i=0;i<count;++i)
+				{
+					int w=nbrs[i];
+					int cost=curr+terrainCost(w);
+					if(!workspace.isClosed(w) && cost<workspace.cost(w))
+					{
+						workspace.update(w, cost, v);
+						push(cost%width, w);
+						pending++;
+					}
+				}
+			}
+		}
+		return new ArrayList<Coordinate>();
+	}
+
+	//adds the cell to the bucket, growing it when full
+	private void push(int b, int cell)
+	{
+		if(bucketSize[b]==buckets[b].length)
+			buckets[b]=Arrays.copyOf(buckets[b], buckets[b].length*2);
+		buckets[b][bucketSize[b]++]=cell;
+	}
+}
@@ -1,6 +1,9 @@
 package pathFinder;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.CompactGrid;
 import map.Coordinate;
 import map.PathMap;
 
@@ -8,22 +11,41 @@ public class DijkstraPathFinder implements PathFinder
 {
 	private PathMap map;
 	private int coordinatesExplored=0;
-	private Coordinate[][] coordinates =null;
-	private int[][] cost =null;
+	//index offsets of the up, down, left and right neighbours of a cell
+	private int[] neighbourOffsets;
+	//visit the waypoints in the cheapest order instead of the order they are listed in
+	private boolean reorderWaypoints=false;
+	// planner on a snapshot of the map version it was made for, so the map is copied once per version rather than per search
+	private WaypointTourPlanner planner=null;
+	private long plannerVersion;
+	//all passable cells cost the same, so the legs are searched breadth first
+	private boolean uniformCost;
 
 	//constructor initilaized with the map
 	public DijkstraPathFinder(PathMap map)
     {
     	this.map=map;
-    	setInitialValues(true);
     }
 
+	//when set, the waypoint order is chosen by a WaypointTourPlanner before the legs are searched
+	public void setReorderWaypoints(boolean reorderWaypoints)
+	{
+		this.reorderWaypoints=reorderWaypoints;
+	}
+
+	public boolean isReorderWaypoints() { return reorderWaypoints; }
+
     @Override
     //finds the shortest path by using of waypoints, origins and destinations
     public List<Coordinate> findPath() 
     {
     	List<Coordinate> path=new ArrayList<Coordinate>();
-
+    	//set per call, the map may have been re-initialised with another size
+    	neighbourOffsets=new int[]{-map.sizeC, map.sizeC, -1, 1};
+    	uniformCost=map.getGrid().isUniformCost();
+    	//no leg can be searched when its ends are in different components, so there is no path
+    	if(!map.getComponents().connects(map.originCells, map.waypointCells, map.destCells))
+    		return path;
     	//if we have waypoints(TaskD)
     	if(map.waypointCells.size()!=0)
     	{
@@ -32,204 +54,212 @@ public class DijkstraPathFinder implements PathFinder
     	//Task A, B, C
     	else
     	{
-    		if(map.destCells.size()==1)//single destination Task A
-    			calculateShortestPath(map.destCells.get(0));
-    		else
-    			calculateShortestPath(null);// multiple destination for Task C
-    		//find shortest route
-    		int value = Integer.MAX_VALUE;
-    		for(Coordinate c : map.destCells)
-    		{
-    			List<Coordinate> temp=getShortestPath(c);
-    			if(fetchTerrainCosts(temp)<value)
-    			{
-    				value= fetchTerrainCosts(temp);
-    				path=temp;
-    			}
-    		}
+    		//the first destination settled is the closest one, for one or many destinations
+    		int[] explored=new int[1];
+    		List<Coordinate> leg=findLeg(map.originCells, map.destCells, explored, 0);
+    		coordinatesExplored+=explored[0];
+    		if(leg!=null)
+    			path=leg;
     	}
         return path;
     }
 
     // calculate distance from source to waypoint , then waypoint to next waypoint and then finally to destination, each using shortest path
+    // the legs do not depend on each other, so they are searched in parallel and joined in order afterwards
     private List<Coordinate> findPathWithWaypoints( List<Coordinate>  paths){
-		//get intermediate paths to waypoints and add to path
-		for(Coordinate c : map.waypointCells)
+		List<Coordinate> waypoints=map.waypointCells;
+		if(reorderWaypoints)
 		{
-			calculateShortestPath(c);
+			if(planner==null || map.getVersion()!=plannerVersion)
+			{
+				plannerVersion=map.getVersion();
+				planner=new WaypointTourPlanner(map.snapshot());
+			}
+			waypoints=planner.order(PathQuery.of(map));
+		}
+		List<List<Coordinate>> legs=new ArrayList<List<Coordinate>>(Collections.nCopies(waypoints.size()+1, (List<Coordinate>) null));
+		int[] explored=new int[legs.size()];
+		ForkJoinPool.commonPool().invoke(new LegTask(waypoints, legs, explored, 0, legs.size()));
+		for(int e : explored)
+			coordinatesExplored+=e;
+
+		//add the intermediate paths to waypoints, then the path to the closest destination
+		for(List<Coordinate> leg : legs)
+		{
+			if(leg==null)
+			{
+				paths.clear();
+				return paths;
+			}
+			//the first cell of a leg is the last cell of the previous one
 			if(paths.size()>0)
 				paths.remove(paths.size()-1);
-			paths.addAll(getShortestPath(c));
-			setInitialValues(false);
-			cost[c.getRow()][c.getColumn()]=0;
+			paths.addAll(leg);
 		}
-		if(paths.size()>0)
-			paths.remove(paths.size()-1);
-		paths.addAll(getShortestPath(map.waypointCells.get(map.waypointCells.size()-1)));
-
-		setInitialValues(false);
-		Coordinate c=map.waypointCells.get(map.waypointCells.size()-1);
-		cost[c.getRow()][c.getColumn()]=0;//set last waypoint as origin
-		//set null to get routes for all destinations
-		calculateShortestPath(null);
+		return paths;
+	}
 
-		//find closest destination from last waypoint and add to path
-		List<Coordinate> destination=null;
-		int destinationCost=Integer.MAX_VALUE;
+	//searches one leg in its own workspace from the pool of the map, so that legs can run at the same time
+	//returns the path of the leg, or null if no destination can be reached
+	private List<Coordinate> findLeg(List<Coordinate> sources, List<Coordinate> dests, int[] explored, int leg)
+	{
+		if(uniformCost)
+			return findLevels(sources, dests, explored, leg);
+		SearchWorkspace workspace=SearchWorkspace.acquire(map);
+		try
+		{
+			setInitialValues(workspace, sources);
+			Coordinate reached=calculateShortestPath(workspace, dests);
+			explored[leg]=workspace.closedCount();
+			return reached==null ? null : getShortestPath(workspace, reached);
+		}
+		finally
+		{
+			SearchWorkspace.release(map, workspace);
+		}
+	}
 
-		for(int i=0;i<map.destCells.size();++i)
+	//breadth first search of a leg on a map where every step costs the same, a 64-cell word of the map at a time
+	private List<Coordinate> findLevels(List<Coordinate> sources, List<Coordinate> dests, int[] explored, int leg)
+	{
+		SearchWorkspace workspace=SearchWorkspace.acquire(map);
+		int[] cells;
+		try
 		{
-			List<Coordinate> tpath=getShortestPath(map.destCells.get(i));
-			if(destination==null || fetchTerrainCosts(tpath)<destinationCost)
-			{
-				destination=tpath;
-				destinationCost= fetchTerrainCosts(tpath);
-			}
+			BitsetBreadthFirstSearch bfs=workspace.bitsetSearch(map.getGrid());
+			cells=bfs.search(indices(sources), indices(dests));
+			explored[leg]=bfs.explored();
+		}
+		finally
+		{
+			SearchWorkspace.release(map, workspace);
 		}
-		if(paths.size()>0)
-			paths.remove(paths.size()-1);
-		paths.addAll(destination);
+		if(cells==null)
+			return null;
+		List<Coordinate> path=new ArrayList<Coordinate>(cells.length);
+		for(int cell : cells)
+			path.add(map.cells[cell/map.sizeC][cell%map.sizeC]);
+		return path;
+	}
 
-		return paths;
+	//indices of the cells of the map, the cells outside it are left out
+	private int[] indices(List<Coordinate> cells)
+	{
+		int[] indices=new int[cells.size()];
+		int count=0;
+		for(Coordinate c : cells)
+			if(map.isIn(c.getRow(), c.getColumn()))
+				indices[count++]=c.getRow()*map.sizeC+c.getColumn();
+		return Arrays.copyOf(indices, count);
 	}
 
-	//initialize weights and cell value
-	private void setInitialValues(boolean setOriginsZero)
+	//starts a new search from the given sources, only the generation of the workspace is bumped
+	private void setInitialValues(SearchWorkspace workspace, List<Coordinate> sources)
 	{
-		//initialize the cost array based oon the inital conditions
-		if(cost ==null)
-			cost =new int[map.sizeR][map.sizeC];
-		for(int i=0;i<map.sizeR;++i)
-			for(int j=0;j<map.sizeC;++j)
-				cost[i][j]=Integer.MAX_VALUE;
-
-		if(setOriginsZero)
-			for(Coordinate c : map.originCells)
-				cost[c.getRow()][c.getColumn()]=0;
-
-		if(coordinates ==null)
-			coordinates =new Coordinate[map.sizeR][map.sizeC];
-		for(int i=0;i<map.sizeR;++i)
-			for(int j=0;j<map.sizeC;++j)
-				coordinates[i][j]=null;
+		workspace.reset();
+		for(int i=0;i<sources.size();++i)
+		{
+			Coordinate c=sources.get(i);
+			if(map.isPassable(c.getRow(), c.getColumn()))
+			{
+				int index=c.getRow()*map.sizeC+c.getColumn();
+				workspace.update(index, 0, -1);
+				workspace.open().insertOrDecrease(index, 0);
+			}
+		}
 	}
 
-    //the core logic for the shortest path algorithm
-    private void calculateShortestPath(Coordinate dest)
+    //the core logic for the shortest path algorithm, cells are settled in order of cost using an indexed heap
+    //stops at the first destination settled and returns it, or null if none can be reached
+    //nothing is allocated per cell: neighbours are found with index offsets and the state lives in the workspace
+    private Coordinate calculateShortestPath(SearchWorkspace workspace, List<Coordinate> dests)
     {
-    	List<Coordinate> unvisited= getAllUnvisitedCoorodinates();
-        
-    	while(unvisited.size()>0)
+    	CompactGrid grid=map.getGrid();
+    	IndexedMinHeap open=workspace.open();
+    	for(int i=0;i<dests.size();++i)
+    		workspace.markTarget(dests.get(i).getRow()*map.sizeC+dests.get(i).getColumn());
+
+    	while(!open.isEmpty())
     	{
-    		Coordinate curr= getMinimumDistanceOFAllCorordinates(unvisited);
-    		unvisited.remove(curr);
-    		coordinatesExplored++;
-    		if(dest!=null && curr.equals(dest))
+    		int index=open.poll();
+    		workspace.close(index);
+    		if(workspace.isTarget(index))
+    			return map.cells[index/map.sizeC][index%map.sizeC];
+    		int r=index/map.sizeC, c=index%map.sizeC;
+    		int curr=workspace.cost(index);
+    		for(int d=0;d<4;++d)
     		{
-    			System.out.println("No path found between source and destination.");
-    			break;
-    		}
-    		List<Coordinate> nbrs=notVisited(unvisited, getNeighbourOfCell(curr));
-    		for(Coordinate n : nbrs)
-    		{
-    			int cost= this.cost[curr.getRow()][curr.getColumn()]+map.cells[n.getRow()][n.getColumn()].getTerrainCost();
-    			if(cost< this.cost[n.getRow()][n.getColumn()])
+    			//no neighbour beyond the edges of the map
+    			if((d==0 && r==0) || (d==1 && r==map.sizeR-1) || (d==2 && c==0) || (d==3 && c==map.sizeC-1))
+    				continue;
+    			int next=index+neighbourOffsets[d];
+    			if(!grid.isPassable(next) || workspace.isClosed(next))
+    				continue;
+    			int cost= curr+grid.terrainCost(next);
+    			if(cost< workspace.cost(next))
     			{
-    				this.cost[n.getRow()][n.getColumn()]=cost;
-    				coordinates[n.getRow()][n.getColumn()]=curr;
+    				workspace.update(next, cost, index);
+    				open.insertOrDecrease(next, cost);
     			}
     		}
     	}
+    	return null;
     }
 
-    // returns shortest path to specified destination by looking up coordinates array for each coord
-    private List<Coordinate> getShortestPath(Coordinate destination)
+    // returns shortest path to specified destination by following the parent of each cell in the workspace
+    private List<Coordinate> getShortestPath(SearchWorkspace workspace, Coordinate destination)
     {
-    	List<Coordinate> reverse = new ArrayList<Coordinate>();
+    	List<Coordinate> path = new ArrayList<Coordinate>();
     	
-    	Coordinate curr=destination;
-    	while(curr!=null)
+    	int curr=destination.getRow()*map.sizeC+destination.getColumn();
+    	while(curr!=-1)
     	{
-    		reverse.add(curr);
-    		curr= coordinates[curr.getRow()][curr.getColumn()];
+    		path.add(map.cells[curr/map.sizeC][curr%map.sizeC]);
+    		curr= workspace.parent(curr);
     	}
-    	List<Coordinate> path=new ArrayList<Coordinate>();
-    	for(int i=reverse.size()-1;i>=0;i--)
-    		path.add(reverse.get(i));
+    	Collections.reverse(path);
         return path;
     }
 	
-    //returns the coord with lowest distance/cost out of the given unvisited list
-    private Coordinate getMinimumDistanceOFAllCorordinates(List<Coordinate> coordinates)
+    // return final result with all the explored coordinates
+    @Override
+    public int coordinatesExplored() 
     {
-    	Coordinate coordinate=coordinates.get(0);
-    	for(Coordinate c : coordinates)
-    		if(cost[c.getRow()][c.getColumn()]< cost[coordinate.getRow()][coordinate.getColumn()])
-    			coordinate=c;
-    	return coordinate;
+        return coordinatesExplored;
     }
 
-	//calculate path cost by adding the terrain cost if it has terrains
-	private int fetchTerrainCosts(List<Coordinate> path)
+	//searches a range of legs, splitting it between the workers
+	//leg i runs from waypoint i-1 (the origins for the first leg) to waypoint i, the last leg to the closest destination
+	private class LegTask extends RecursiveAction
 	{
-		int cost=0;
-		for(Coordinate c: path)
-			cost+=map.cells[c.getRow()][c.getColumn()].getTerrainCost();
+		private static final long serialVersionUID=1L;
 
-		return cost;
-	}
+		private final List<Coordinate> waypoints;
+		private final List<List<Coordinate>> legs;
+		private final int[] explored;
+		private final int from, to;
 
-    //returns a list containing all passable coordinates in the map
-    private List<Coordinate> getAllUnvisitedCoorodinates()
-	{
-    	List<Coordinate> unvisited=new ArrayList<Coordinate>();
-    	for(int i=0;i<map.sizeR;++i)
-    		for(int j=0;j<map.sizeC;++j)
-    		{
-    			Coordinate c=map.cells[i][j];
-    			if(map.isPassable(i, j))
-    				unvisited.add(c);
-    		}
-   		return unvisited;
-	}
-    //returns a list containing the nodes not been visited yet
-    private List<Coordinate> notVisited(List<Coordinate> unvisited, List<Coordinate> coords)
-    {
-    	List<Coordinate> list=new ArrayList<Coordinate>();
-    	for(int i=0;i<coords.size();++i)
-    	{
-    		Coordinate coordinate = coords.get(i);
-    		if(unvisited.contains(coordinate))
-    			list.add(coordinate);
-    	}
-    	return list;
-    }
-	
-    //returns a list with the 4 neighbours of the specified coordinate
-    private List<Coordinate> getNeighbourOfCell(Coordinate coordinate)
-    {
-    	List<Coordinate> neighbours = new ArrayList<Coordinate>();
-    	
-    	//add the upper neigbour of the cell
-    	if(coordinate.getRow()>0 && map.isPassable(coordinate.getRow()-1,coordinate.getColumn()))
-    		neighbours.add(map.cells[coordinate.getRow()-1][coordinate.getColumn()]);
-    	//add the lower neighbour of the cell
-    	if(coordinate.getRow()<map.sizeR-1 && map.isPassable(coordinate.getRow()+1,coordinate.getColumn()))
-    		neighbours.add(map.cells[coordinate.getRow()+1][coordinate.getColumn()]);
-    	//add the left neighbour of the cell
-    	if(coordinate.getColumn()>0 && map.isPassable(coordinate.getRow(),coordinate.getColumn()-1))
-    		neighbours.add(map.cells[coordinate.getRow()][coordinate.getColumn()-1]);
-    	//add right
-    	if(coordinate.getColumn()<map.sizeC-1 && map.isPassable(coordinate.getRow(),coordinate.getColumn()+1))
-    		neighbours.add(map.cells[coordinate.getRow()][coordinate.getColumn()+1]);
-    	
-    	return neighbours;
-    }
+		LegTask(List<Coordinate> waypoints, List<List<Coordinate>> legs, int[] explored, int from, int to)
+		{
+			this.waypoints=waypoints;
+			this.legs=legs;
+			this.explored=explored;
+			this.from=from;
+			this.to=to;
+		}
 
-    // return final result with all the explored coordinates
-    @Override
-    public int coordinatesExplored() 
-    {
-        return coordinatesExplored;
-    }
+		@Override
+		protected void compute()
+		{
+			if(to-from==1)
+			{
+				List<Coordinate> sources=from==0 ? map.originCells : Collections.singletonList(waypoints.get(from-1));
+				List<Coordinate> dests=from<waypoints.size() ? Collections.singletonList(waypoints.get(from)) : map.destCells;
+				legs.set(from, findLeg(sources, dests, explored, from));
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new LegTask(waypoints, legs, explored, from, mid), new LegTask(waypoints, legs, explored, mid, to));
+		}
+	}
 }
\ No newline at end of file
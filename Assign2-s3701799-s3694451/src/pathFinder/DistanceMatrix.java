@@ -0,0 +1,138 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.Coordinate;
+import map.MapSnapshot;
+
+/**
+ * Many-to-many shortest path costs on one map snapshot, without building the paths.
+ * One Dijkstra runs per cell of the smaller side, each stopping once every cell of the other
+ * side is settled. With fewer destinations than origins the searches run backwards from the
+ * destinations. The searches run in parallel on a fork-join pool, each worker in its own workspace.
+ */
+public class DistanceMatrix
+{
+	// cost stored for a pair with no path between them
+	public static final int UNREACHABLE=-1;
+
+	private final SnapshotPathFinder finder;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<SearchWorkspace> workspaces;
+
+	//searches run on the common fork-join pool, which uses all cores
+	public DistanceMatrix(MapSnapshot snapshot)
+	{
+		this(snapshot, ForkJoinPool.commonPool());
+	}
+
+	public DistanceMatrix(MapSnapshot snapshot, ForkJoinPool pool)
+	{
+		this.finder=new SnapshotPathFinder(snapshot);
+		this.pool=pool;
+		workspaces=ThreadLocal.withInitial(() -> finder.newWorkspace());
+	}
+
+	/**
+	 * Compute the cost of the shortest path from every origin to every destination.
+	 *
+	 * @return costs[i][j] is the cost from origin i to destination j, UNREACHABLE if there is no path.
+	 */
+	public int[][] compute(List<Coordinate> origins, List<Coordinate> destinations)
+	{
+		int[] from=cells(origins);
+		int[] to=cells(destinations);
+		int[][] costs=new int[from.length][to.length];
+		if(from.length==0 || to.length==0)
+			return costs;
+		//search from the smaller side
+		boolean reverse=to.length<from.length;
+		pool.invoke(new SearchTask(reverse ? to : from, reverse ? from : to, reverse, costs, 0, reverse ? to.length : from.length));
+		return costs;
+	}
+
+	//cell indices of the coordinates, -1 for the ones outside the map
+	private int[] cells(List<Coordinate> coords)
+	{
+		MapSnapshot snapshot=finder.snapshot();
+		int[] cells=new int[coords.size()];
+		for(int i=0;i<cells.length;++i)
+		{
+			Coordinate c=coords.get(i);
+			cells[i]=snapshot.isIn(c.getRow(), c.getColumn()) ? snapshot.index(c.getRow(), c.getColumn()) : -1;
+		}
+		return cells;
+	}
+
+	//Dijkstra from one cell until all the targets are settled, writing their costs into the row or column
+	private void search(int source, int[] targets, boolean reverse, int[][] costs, int index, SearchWorkspace workspace)
+	{
+		MapSnapshot snapshot=finder.snapshot();
+		workspace.reset();
+		int remaining=0;
+		for(int t : targets)
+			if(t!=-1 && snapshot.isPassable(t) && !workspace.isTarget(t))
+			{
+				workspace.markTarget(t);
+				remaining++;
+			}
+		IndexedMinHeap open=workspace.open();
+		if(source!=-1 && snapshot.isPassable(source))
+		{
+			workspace.update(source, 0, -1);
+			open.insertOrDecrease(source, 0);
+		}
+		while(remaining>0 && !open.isEmpty())
+		{
+			int cell=open.poll();
+			workspace.close(cell);
+			if(workspace.isTarget(cell))
+				remaining--;
+			finder.relax(cell, workspace, reverse);
+		}
+
+		for(int j=0;j<targets.length;++j)
+		{
+			int t=targets[j];
+			int cost=t!=-1 && workspace.isClosed(t) ? workspace.cost(t) : UNREACHABLE;
+			if(reverse)
+				costs[j][index]=cost;
+			else
+				costs[index][j]=cost;
+		}
+	}
+
+	//runs the searches of a range of sources, splitting it between the workers
+	private class SearchTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+
+		private final int[] sources, targets;
+		private final boolean reverse;
+		private final int[][] costs;
+		private final int from, to;
+
+		SearchTask(int[] sources, int[] targets, boolean reverse, int[][] costs, int from, int to)
+		{
+			this.sources=sources;
+			this.targets=targets;
+			this.reverse=reverse;
+			this.costs=costs;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to-from==1)
+			{
+				search(sources[from], targets, reverse, costs, from, workspaces.get());
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new SearchTask(sources, targets, reverse, costs, from, mid), new SearchTask(sources, targets, reverse, costs, mid, to));
+		}
+	}
+}
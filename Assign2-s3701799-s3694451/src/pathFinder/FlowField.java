@@ -0,0 +1,97 @@
+package pathFinder;
+
+import java.util.*;
+import map.MapSnapshot;
+
+/**
+ * Cost from every cell of a snapshot to the nearest of a set of target cells, found by one
+ * reverse Dijkstra from all the targets. A path from any cell is then a greedy descent: step to
+ * the neighbour whose cost plus its terrain cost is the cost of the current cell, in O(path length).
+ * A field takes one search of the whole map however many targets it has, fields for different
+ * target sets can be built in parallel (see FlowFieldPathFinder).
+ */
+public final class FlowField
+{
+	// cost of a cell from which no target can be reached
+	public static final int UNREACHABLE=Integer.MAX_VALUE;
+
+	private final MapSnapshot snapshot;
+	private final int[] distance;
+
+	private FlowField(MapSnapshot snapshot, int[] distance)
+	{
+		this.snapshot=snapshot;
+		this.distance=distance;
+	}
+
+	/**
+	 * Compute the field of the targets on the snapshot.
+	 *
+	 * @param targets Indices of the target cells, impassable ones are ignored.
+	 */
+	public static FlowField build(MapSnapshot snapshot, int[] targets)
+	{
+		SnapshotPathFinder finder=new SnapshotPathFinder(snapshot);
+		SearchWorkspace workspace=finder.newWorkspace();
+		//no targets, so the search settles every cell that can reach one of the targets
+		finder.search(targets, new int[0], workspace, true);
+		int[] distance=new int[workspace.size()];
+		for(int cell=0;cell<distance.length;++cell)
+			distance[cell]=workspace.cost(cell);
+		return new FlowField(snapshot, distance);
+	}
+
+	public MapSnapshot snapshot() { return snapshot; }
+
+	//cost from the cell to the nearest target, UNREACHABLE if there is none
+	public int distance(int cell) { return distance[cell]; }
+
+	public boolean isReachable(int cell) { return distance[cell]!=UNREACHABLE; }
+
+	/**
+	 * Path from the source with the smallest cost to its nearest target, ties going to the lower cell index.
+	 *
+	 * @return The cells of the path, empty if no source reaches a target.
+	 */
+	public int[] descend(int[] sources)
+	{
+		int cell=-1;
+		for(int s : sources)
+			if(isReachable(s) && (cell==-1 || distance[s]<distance[cell] || (distance[s]==distance[cell] && s<cell)))
+				cell=s;
+		if(cell==-1)
+			return new int[0];
+
+		int[] path=new int[16];
+		int length=0;
+		path[length++]=cell;
+		while(distance[cell]!=0)
+		{
+			int next=downhill(cell);
+			//only with zero terrain costs could the descent go round in circles
+			if(next==-1 || length>snapshot.size())
+				return new int[0];
+			if(length==path.length)
+				path=Arrays.copyOf(path, 2*length);
+			path[length++]=next;
+			cell=next;
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	//the first neighbour, in the order up, down, left, right, that is one step closer along a shortest path
+	private int downhill(int cell)
+	{
+		int r=cell/snapshot.sizeC, c=cell%snapshot.sizeC;
+		for(int d=0;d<4;++d)
+		{
+			int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+			if(!snapshot.isPassable(nr, nc))
+				continue;
+			int next=snapshot.index(nr, nc);
+			if(isReachable(next) && distance[next]+snapshot.terrainCost(next)==distance[cell])
+				return next;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,154 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.Coordinate;
+import map.MapSnapshot;
+import map.PathMap;
+
+/**
+ * Path finder for fixed destination sets and changing origins.
+ * It keeps one FlowField per set of leg targets: the destinations, and each waypoint when there are any.
+ * A query only descends the fields from its origins, without searching. When the map changes, all
+ * fields are dropped, and the ones the next query needs are rebuilt in parallel, one search per field.
+ */
+public class FlowFieldPathFinder implements PathFinder
+{
+	private final PathMap map;
+	private final ForkJoinPool pool;
+	// fields by their sorted target cells, all on the snapshot of the current map version
+	private final Map<List<Integer>, FlowField> fields=new HashMap<List<Integer>, FlowField>();
+	private MapSnapshot snapshot=null;
+	private long version;
+	private int coordinatesExplored=0;
+
+	//constructor initialized with the map, fields are built on the common fork-join pool
+	public FlowFieldPathFinder(PathMap map)
+	{
+		this(map, ForkJoinPool.commonPool());
+	}
+
+	public FlowFieldPathFinder(PathMap map, ForkJoinPool pool)
+	{
+		this.map=map;
+		this.pool=pool;
+	}
+
+	@Override
+	public List<Coordinate> findPath()
+	{
+		if(snapshot==null || map.getVersion()!=version)
+		{
+			fields.clear();
+			snapshot=map.snapshot();
+			version=map.getVersion();
+		}
+
+		//leg i goes to waypoint i, the last leg to the nearest destination
+		List<List<Integer>> legTargets=new ArrayList<List<Integer>>();
+		for(Coordinate w : map.waypointCells)
+			legTargets.add(targetKey(Collections.singletonList(w)));
+		legTargets.add(targetKey(map.destCells));
+		buildMissing(legTargets);
+
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		int[] sources=indices(map.originCells);
+		for(List<Integer> targets : legTargets)
+		{
+			int[] leg=fields.get(targets).descend(sources);
+			if(leg.length==0)
+				return new ArrayList<Coordinate>();
+			//the first cell of a leg is the last cell of the previous one
+			if(!path.isEmpty())
+				path.remove(path.size()-1);
+			for(int cell : leg)
+				path.add(map.cells[cell/map.sizeC][cell%map.sizeC]);
+			sources=new int[]{leg[leg.length-1]};
+		}
+		return path;
+	}
+
+	//builds the fields that are not kept yet, all at the same time
+	private void buildMissing(List<List<Integer>> legTargets)
+	{
+		List<List<Integer>> missing=new ArrayList<List<Integer>>();
+		for(List<Integer> targets : legTargets)
+			if(!fields.containsKey(targets) && !missing.contains(targets))
+				missing.add(targets);
+		if(missing.isEmpty())
+			return;
+		FlowField[] built=new FlowField[missing.size()];
+		pool.invoke(new BuildTask(missing, built, 0, built.length));
+		for(int i=0;i<built.length;++i)
+		{
+			fields.put(missing.get(i), built[i]);
+			//a reverse search settles every cell that can reach its targets
+			for(int cell=0;cell<snapshot.size();++cell)
+				if(built[i].isReachable(cell))
+					coordinatesExplored++;
+		}
+	}
+
+	//the distinct cells of the coordinates that are in the map, sorted
+	private List<Integer> targetKey(List<Coordinate> coords)
+	{
+		int[] cells=indices(coords);
+		Arrays.sort(cells);
+		List<Integer> key=new ArrayList<Integer>();
+		for(int i=0;i<cells.length;++i)
+			if(i==0 || cells[i]!=cells[i-1])
+				key.add(cells[i]);
+		return key;
+	}
+
+	private int[] indices(List<Coordinate> coords)
+	{
+		int[] indices=new int[coords.size()];
+		int count=0;
+		for(Coordinate c : coords)
+			if(map.isIn(c))
+				indices[count++]=c.getRow()*map.sizeC+c.getColumn();
+		return Arrays.copyOf(indices, count);
+	}
+
+	@Override
+	public int coordinatesExplored()
+	{
+		return coordinatesExplored;
+	}
+
+	//builds the fields of a range of target sets, splitting it between the workers
+	private class BuildTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+
+		private final List<List<Integer>> targets;
+		private final FlowField[] built;
+		private final int from, to;
+
+		BuildTask(List<List<Integer>> targets, FlowField[] built, int from, int to)
+		{
+			this.targets=targets;
+			this.built=built;
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to-from==1)
+			{
+				List<Integer> cells=targets.get(from);
+				int[] array=new int[cells.size()];
+				for(int i=0;i<array.length;++i)
+					array[i]=cells.get(i);
+				built[from]=FlowField.build(snapshot, array);
+				return;
+			}
+			int mid=(from+to)>>>1;
+			invokeAll(new BuildTask(targets, built, from, mid), new BuildTask(targets, built, mid, to));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package pathFinder;
+
+import java.util.*;
+import map.CompactGrid;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Common base for path finders that search the map grid by cell index (r*sizeC+c).
+ * It handles the waypoint legs and the choice of destination, subclasses only
+ * provide the search from a set of source cells to the nearest of a set of target cells.
+ */
+public abstract class GridPathFinder implements PathFinder
+{
+	// row, column offsets of the 4 neighbours, in the order up, down, left, right
+	protected static final int[] DR={-1, 1, 0, 0};
+	protected static final int[] DC={0, 0, -1, 1};
+
+	protected PathMap map;
+	protected int coordinatesExplored=0;
+
+	//constructor initialized with the map
+	public GridPathFinder(PathMap map)
+	{
+		this.map=map;
+	}
+
+	@Override
+	//origin -> each waypoint in order -> nearest destination, each leg being a shortest path
+	public List<Coordinate> findPath()
+	{
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		//a leg with its ends in different components has no path, which is known without searching
+		if(!map.getComponents().connects(map.originCells, map.waypointCells, map.destCells))
+			return path;
+		List<Coordinate> sources=map.originCells;
+		for(Coordinate waypoint : map.waypointCells)
+		{
+			if(!appendLeg(path, search(sources, Collections.singletonList(waypoint))))
+				return new ArrayList<Coordinate>();
+			sources=Collections.singletonList(waypoint);
+		}
+		if(!appendLeg(path, search(sources, map.destCells)))
+			return new ArrayList<Coordinate>();
+		return path;
+	}
+
+	//adds a leg to the path, the first cell of the leg is the last cell of the path so far
+	protected static boolean appendLeg(List<Coordinate> path, List<Coordinate> leg)
+	{
+		if(leg==null || leg.isEmpty())
+			return false;
+		if(path.size()>0)
+			path.remove(path.size()-1);
+		path.addAll(leg);
+		return true;
+	}
+
+	/**
+	 * Find a shortest path from any of the sources to the nearest of the targets.
+	 *
+	 * @return The path from a source to a target, or an empty list if no target can be reached.
+	 */
+	protected abstract List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets);
+
+	@Override
+	public int coordinatesExplored()
+	{
+		return coordinatesExplored;
+	}
+
+	//
+	// helpers on cell indices
+	//
+
+	protected int cellCount() { return map.sizeR*map.sizeC; }
+
+	protected int index(Coordinate c) { return c.getRow()*map.sizeC+c.getColumn(); }
+
+	protected Coordinate cellAt(int index) { return map.cells[index/map.sizeC][index%map.sizeC]; }
+
+	protected boolean isPassable(int index) { return map.getGrid().isPassable(index); }
+
+	protected int terrainCost(int index) { return map.getGrid().terrainCost(index); }
+
+	//fills out with the passable neighbours of the cell and returns how many there are
+	protected int neighbours(int index, int[] out)
+	{
+		CompactGrid grid=map.getGrid();
+		int r=index/map.sizeC, c=index%map.sizeC;
+		int count=0;
+		for(int d=0;d<4;++d)
+			if(grid.isPassable(r+DR[d], c+DC[d]))
+				out[count++]=(r+DR[d])*map.sizeC+c+DC[d];
+		return count;
+	}
+
+	//returns the passable cells of the list as indices
+	protected int[] passableIndices(List<Coordinate> coords)
+	{
+		int[] indices=new int[coords.size()];
+		int count=0;
+		for(Coordinate c : coords)
+			if(map.isPassable(c.getRow(), c.getColumn()))
+				indices[count++]=index(c);
+		return Arrays.copyOf(indices, count);
+	}
+
+	//returns the smallest and largest terrain cost of the passable cells, as {min, max}
+	protected int[] terrainCostRange()
+	{
+		return map.getGrid().terrainCostRange();
+	}
+
+	//walks the parent links back from the target, sources have a parent of -1
+	protected List<Coordinate> buildPath(int[] parent, int target)
+	{
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		for(int curr=target;curr!=-1;curr=parent[curr])
+			path.add(cellAt(curr));
+		Collections.reverse(path);
+		return path;
+	}
+
+	//walks the parents kept in the workspace back from the target
+	protected List<Coordinate> buildPath(SearchWorkspace workspace, int target)
+	{
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		for(int curr=target;curr!=-1;curr=workspace.parent(curr))
+			path.add(cellAt(curr));
+		Collections.reverse(path);
+		return path;
+	}
+}
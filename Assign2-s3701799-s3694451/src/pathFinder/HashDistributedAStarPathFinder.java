@@ -0,0 +1,491 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import map.CompactGrid;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Parallel A* with hash-distributed ownership (HDA*), so that a single query scales with the cores.
+ * Every cell is owned by one worker thread, chosen by a hash of its (row, column) tile. A worker keeps
+ * its own open list and only it writes the costs of its cells. A neighbour owned by another worker is
+ * sent to it in a batch through that worker's mailbox, a lock-free queue with many producers and one consumer.
+ * Once a target is reached its cost is the incumbent, and nodes that cannot beat it are dropped.
+ * The search ends when no node is left in any open list or mailbox, counted by one shared counter that
+ * goes up before a node is sent and down after it is expanded or dropped. Since the heuristic is
+ * consistent, the incumbent is then a shortest path. Cells can be expanded more than once,
+ * when a cheaper route to them arrives after they were expanded.
+ * The workers and their threads belong to the finder and are reused by every search: between
+ * searches the threads wait parked on the queue of the finder's pool, and they exit after being
+ * idle for a few seconds, to be started again by the next search. The costs and parents of the
+ * cells are kept in a pooled SearchWorkspace.
+ */
+public class HashDistributedAStarPathFinder extends GridPathFinder
+{
+	private static final int INF=Integer.MAX_VALUE;
+	// cells of a tile side, as a shift: a tile of 4x4 cells is owned by one worker, so most steps stay local
+	private static final int TILE_SHIFT=2;
+	// nodes sent in one batch
+	private static final int BATCH=64;
+	// expansions between flushes of the batches not full yet
+	private static final int FLUSH_EVERY=64;
+	// idle rounds spent yielding before parking
+	private static final int SPINS=64;
+	// seconds a worker thread waits for the next search before it exits
+	private static final int IDLE_SECONDS=5;
+
+	private final int threads;
+	private final Worker[] workers;
+	// threads the workers run on, made on the first search
+	private ThreadPoolExecutor pool=null;
+	// expansions of each worker in the last findPath
+	private int[] expansions;
+	// smallest terrain cost of the map, as of version
+	private int minCost;
+	private long version=-1;
+
+	// state of the running search, shared by the workers
+	private int[] targets;
+	// cost and parent of each cell, each only written by the owner of the cell
+	private SearchWorkspace workspace;
+	// nodes sent and not yet expanded or dropped, the search ends when it is 0
+	private final AtomicLong pending=new AtomicLong();
+	// incumbent, cost in the high half and target in the low half, Long.MAX_VALUE while no target is reached
+	private final AtomicLong best=new AtomicLong(Long.MAX_VALUE);
+	private volatile Throwable failure=null;
+	// counted down by each worker when it is out of the search
+	private CountDownLatch finished;
+
+	//constructor initialized with the map, with a worker per core
+	public HashDistributedAStarPathFinder(PathMap map)
+	{
+		this(map, Runtime.getRuntime().availableProcessors());
+	}
+
+	public HashDistributedAStarPathFinder(PathMap map, int threads)
+	{
+		super(map);
+		this.threads=Math.max(1, threads);
+		expansions=new int[this.threads];
+		workers=new Worker[this.threads];
+		for(int i=0;i<this.threads;++i)
+			workers[i]=new Worker(i);
+	}
+
+	@Override
+	public List<Coordinate> findPath()
+	{
+		expansions=new int[threads];
+		return super.findPath();
+	}
+
+	//cells expanded by each worker thread in the last findPath
+	public int[] expansionsPerThread()
+	{
+		return expansions.clone();
+	}
+
+	//stops the worker threads now instead of after they have been idle, a later search starts them again
+	public synchronized void shutdown()
+	{
+		if(pool!=null)
+			pool.shutdown();
+		pool=null;
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		if(map.getVersion()!=version)
+		{
+			minCost=terrainCostRange()[0];
+			version=map.getVersion();
+		}
+		int[] src=passableIndices(sources), dst=passableIndices(targets);
+		if(src.length==0 || dst.length==0)
+			return new ArrayList<Coordinate>();
+
+		workspace=SearchWorkspace.acquire(map);
+		try
+		{
+			this.targets=dst;
+			for(int t : dst)
+				workspace.markTarget(t);
+			pending.set(0);
+			best.set(Long.MAX_VALUE);
+			failure=null;
+			for(Worker worker : workers)
+				worker.reset();
+			for(int s : src)
+			{
+				pending.incrementAndGet();
+				workers[owner(s/map.sizeC, s%map.sizeC)].mailbox.put(new Batch(new int[]{s, 0, -1}, 3));
+			}
+			runWorkers();
+			for(int i=0;i<threads;++i)
+			{
+				expansions[i]+=workers[i].expanded;
+				coordinatesExplored+=workers[i].expanded;
+			}
+			long found=best.get();
+			if(found==Long.MAX_VALUE)
+				return new ArrayList<Coordinate>();
+
+			List<Coordinate> path=new ArrayList<Coordinate>();
+			for(int cell=(int) found;cell!=-1;cell=workspace.parent(cell))
+			{
+				//only with zero terrain costs could the parents go round in circles
+				if(path.size()>cellCount())
+					return new ArrayList<Coordinate>();
+				path.add(cellAt(cell));
+			}
+			Collections.reverse(path);
+			return path;
+		}
+		finally
+		{
+			SearchWorkspace.release(map, workspace);
+			workspace=null;
+		}
+	}
+
+	//runs every worker on a thread of the pool until the search ends
+	private void runWorkers()
+	{
+		ThreadPoolExecutor executor;
+		synchronized(this)
+		{
+			if(pool==null)
+			{
+				//as many threads as workers, since a worker waits for the others until the search ends
+				pool=new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r ->
+				{
+					Thread t=new Thread(r, "hda-worker");
+					t.setDaemon(true);
+					return t;
+				});
+				pool.allowCoreThreadTimeOut(true);
+			}
+			executor=pool;
+		}
+		finished=new CountDownLatch(threads);
+		for(Worker worker : workers)
+			executor.execute(worker);
+		try
+		{
+			finished.await();
+		}
+		catch(InterruptedException e)
+		{
+			//the workers stop at their next round, and must be out before the workspace goes back to the pool
+			failure=e;
+			while(finished.getCount()>0)
+			{
+				try
+				{
+					finished.await();
+				}
+				catch(InterruptedException again)
+				{
+				}
+			}
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the search workers", e);
+		}
+		if(failure!=null)
+			throw new RuntimeException("A search worker failed", failure);
+	}
+
+	//worker owning the cell, by a hash of its tile
+	private int owner(int r, int c)
+	{
+		int h=(r>>TILE_SHIFT)*0x9E3779B1+(c>>TILE_SHIFT)*0x7FEB352D;
+		h^=h>>>15;
+		h*=0x846CA68B;
+		h^=h>>>16;
+		return (h & 0x7fffffff)%threads;
+	}
+
+	int incumbent()
+	{
+		return (int) (best.get()>>>32);
+	}
+
+	//offers a target reached with the given cost as the incumbent
+	void reached(int target, int cost)
+	{
+		long offer=((long) cost<<32) | target;
+		long current=best.get();
+		while(offer<current && !best.compareAndSet(current, offer))
+			current=best.get();
+	}
+
+	//Manhattan distance to the nearest target times the smallest terrain cost, which is consistent
+	int heuristic(int cell)
+	{
+		int r=cell/map.sizeC, c=cell%map.sizeC;
+		int h=INF;
+		for(int t : targets)
+			h=Math.min(h, Math.abs(r-t/map.sizeC)+Math.abs(c-t%map.sizeC));
+		return h*minCost;
+	}
+
+	//a worker thread, expanding the cells it owns
+	private class Worker implements Runnable
+	{
+		private final int id;
+		private final Mailbox mailbox=new Mailbox();
+		// open list, f in the high half and cell in the low half of each entry
+		private long[] open=new long[64];
+		private int openSize=0;
+		// nodes waiting to be sent to each worker, as (cell, g, parent) triples
+		private final int[][] outgoing;
+		private final int[] outgoingSize;
+		// change to the pending count not applied yet: nodes made locally less nodes expanded or dropped
+		private long unsettled=0;
+		private int expanded=0;
+
+		Worker(int id)
+		{
+			this.id=id;
+			outgoing=new int[threads][3*BATCH];
+			outgoingSize=new int[threads];
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				work();
+			}
+			catch(Throwable t)
+			{
+				failure=t;
+			}
+			finally
+			{
+				finished.countDown();
+			}
+		}
+
+		//forgets the last search, its mailbox is empty once the search has ended
+		void reset()
+		{
+			openSize=0;
+			unsettled=0;
+			expanded=0;
+			mailbox.clear();
+			Arrays.fill(outgoingSize, 0);
+		}
+
+		private void work()
+		{
+			int idle=0;
+			int sinceFlush=0;
+			while(failure==null)
+			{
+				for(Batch batch=mailbox.poll();batch!=null;batch=mailbox.poll())
+					for(int i=0;i<batch.length;i+=3)
+						accept(batch.nodes[i], batch.nodes[i+1], batch.nodes[i+2]);
+				if(openSize>0)
+				{
+					idle=0;
+					expandNext();
+					if(++sinceFlush==FLUSH_EVERY)
+					{
+						flush();
+						sinceFlush=0;
+					}
+					continue;
+				}
+				//out of work: send everything, then settle the count, which can only reach 0 when no worker has work
+				flush();
+				pending.addAndGet(unsettled);
+				unsettled=0;
+				if(pending.get()==0)
+					return;
+				if(++idle<SPINS)
+					Thread.yield();
+				else
+					LockSupport.parkNanos(20_000);
+			}
+		}
+
+		//takes a node for a cell of this worker, keeping it if it is the cheapest route to the cell so far
+		private void accept(int cell, int cost, int from)
+		{
+			if(cost>=workspace.cost(cell))
+			{
+				unsettled--;
+				return;
+			}
+			workspace.update(cell, cost, from);
+			int f=cost+heuristic(cell);
+			//a target is not expanded, nor a node that cannot beat the incumbent
+			if(workspace.isTarget(cell))
+				reached(cell, cost);
+			if(workspace.isTarget(cell) || f>=incumbent())
+			{
+				unsettled--;
+				return;
+			}
+			push(((long) f<<32) | cell);
+		}
+
+		private void expandNext()
+		{
+			long entry=pop();
+			int cell=(int) entry;
+			int f=(int) (entry>>>32);
+			int cost=workspace.cost(cell);
+			//a stale entry, the cell was reached more cheaply since, or it cannot beat the incumbent
+			if(f!=cost+heuristic(cell) || f>=incumbent())
+			{
+				unsettled--;
+				return;
+			}
+			expanded++;
+			CompactGrid grid=map.getGrid();
+			int r=cell/map.sizeC, c=cell%map.sizeC;
+			for(int d=0;d<4;++d)
+			{
+				int nr=r+DR[d], nc=c+DC[d];
+				if(!grid.isPassable(nr, nc))
+					continue;
+				int next=nr*map.sizeC+nc;
+				int nextCost=cost+grid.terrainCost(next);
+				int to=owner(nr, nc);
+				if(to==id)
+				{
+					unsettled++;
+					accept(next, nextCost, cell);
+				}
+				else
+					send(to, next, nextCost, cell);
+			}
+			unsettled--;
+		}
+
+		private void send(int to, int cell, int cost, int from)
+		{
+			int[] out=outgoing[to];
+			int size=outgoingSize[to];
+			out[size]=cell;
+			out[size+1]=cost;
+			out[size+2]=from;
+			outgoingSize[to]=size+3;
+			if(size+3==out.length)
+				flush(to);
+		}
+
+		private void flush()
+		{
+			for(int to=0;to<threads;++to)
+				if(outgoingSize[to]>0)
+					flush(to);
+		}
+
+		//counts the nodes as pending before the owner can see them
+		private void flush(int to)
+		{
+			int size=outgoingSize[to];
+			pending.addAndGet(size/3);
+			workers[to].mailbox.put(new Batch(outgoing[to], size));
+			outgoing[to]=new int[3*BATCH];
+			outgoingSize[to]=0;
+		}
+
+		//binary heap on the open list
+		private void push(long entry)
+		{
+			if(openSize==open.length)
+				open=Arrays.copyOf(open, 2*openSize);
+			int i=openSize++;
+			while(i>0 && open[(i-1)>>>1]>entry)
+			{
+				open[i]=open[(i-1)>>>1];
+				i=(i-1)>>>1;
+			}
+			open[i]=entry;
+		}
+
+		private long pop()
+		{
+			long top=open[0];
+			long last=open[--openSize];
+			int i=0;
+			while(2*i+1<openSize)
+			{
+				int child=2*i+1;
+				if(child+1<openSize && open[child+1]<open[child])
+					child++;
+				if(open[child]>=last)
+					break;
+				open[i]=open[child];
+				i=child;
+			}
+			open[i]=last;
+			return top;
+		}
+	}
+
+	//nodes sent together, as (cell, g, parent) triples
+	private static final class Batch
+	{
+		private final int[] nodes;
+		private final int length;
+		private volatile Batch next=null;
+
+		Batch(int[] nodes, int length)
+		{
+			this.nodes=nodes;
+			this.length=length;
+		}
+	}
+
+	/**
+	 * Lock-free queue with many producers and one consumer, a linked list of batches.
+	 * A producer swaps itself in as the tail and then links the old tail to it, so the consumer
+	 * can briefly see the queue as ending before the newest batches, it finds them on a later poll.
+	 */
+	private static final class Mailbox
+	{
+		private final AtomicReference<Batch> tail;
+		// last batch taken, only read and written by the consumer
+		private Batch head;
+
+		Mailbox()
+		{
+			head=new Batch(new int[0], 0);
+			tail=new AtomicReference<Batch>(head);
+		}
+
+		void put(Batch batch)
+		{
+			tail.getAndSet(batch).next=batch;
+		}
+
+		//drops the batches left, only when no producer is putting one
+		void clear()
+		{
+			head=tail.get();
+		}
+
+		//the next batch, or null if there is none yet
+		Batch poll()
+		{
+			Batch next=head.next;
+			if(next!=null)
+				head=next;
+			return next;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Hierarchical path finding (HPA*) over a precomputed ClusterAbstraction.
+ * The sources are connected to the entrances of their clusters and the entrances of the target
+ * clusters to the targets with searches inside those clusters only. The abstract graph is then
+ * searched with Dijkstra, and only the intra edges on the chosen abstract path are refined
+ * back into cells. An abstraction built before the map last changed is rebuilt, with the same
+ * settings, before the next query.
+ */
+public class HierarchicalPathFinder extends GridPathFinder
+{
+	private ClusterAbstraction abstraction;
+
+	//constructor initialized with the map, builds the abstraction with the default settings
+	public HierarchicalPathFinder(PathMap map)
+	{
+		this(map, new ClusterAbstraction(map));
+	}
+
+	//constructor sharing an abstraction already built for the map
+	public HierarchicalPathFinder(PathMap map, ClusterAbstraction abstraction)
+	{
+		super(map);
+		this.abstraction=abstraction;
+	}
+
+	public ClusterAbstraction abstraction() { return abstraction; }
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		//entrances and intra edge costs of an older version of the map can cross cells that are now blocked
+		if(!abstraction.isValidFor(map))
+			abstraction=new ClusterAbstraction(map, abstraction.clusterSize(), abstraction.entranceWidth());
+		int[] sourceCells=passableIndices(sources);
+		int[] targetCells=passableIndices(targets);
+		if(sourceCells.length==0 || targetCells.length==0)
+			return new ArrayList<Coordinate>();
+
+		//searches inside the source clusters and, reversed, inside the target clusters
+		Map<Integer, ClusterAbstraction.LocalSearch> forward=localSearches(sourceCells, false);
+		Map<Integer, ClusterAbstraction.LocalSearch> backward=localSearches(targetCells, true);
+
+		//a target inside a source cluster may be reached without leaving the cluster
+		int best=Integer.MAX_VALUE;
+		int bestTarget=-1, bestNode=-1;
+		for(int t : targetCells)
+		{
+			ClusterAbstraction.LocalSearch f=forward.get(abstraction.clusterOf(t));
+			if(f!=null && f.distTo(t)<best)
+			{
+				best=f.distTo(t);
+				bestTarget=t;
+			}
+		}
+
+		//Dijkstra on the abstract graph, seeded with the entrances of the source clusters
+		int nodes=abstraction.nodeCount();
+		int[] cost=new int[nodes];
+		int[] parent=new int[nodes];
+		Arrays.fill(cost, Integer.MAX_VALUE);
+		Arrays.fill(parent, -1);
+		IndexedMinHeap open=new IndexedMinHeap(nodes);
+		for(Map.Entry<Integer, ClusterAbstraction.LocalSearch> e : forward.entrySet())
+			for(int u : abstraction.clusterNodes(e.getKey()))
+			{
+				int d=e.getValue().distTo(abstraction.nodeCell(u));
+				if(d<cost[u])
+				{
+					cost[u]=d;
+					open.insertOrDecrease(u, d);
+				}
+			}
+		while(!open.isEmpty() && open.peekKey()<best)
+		{
+			int u=open.poll();
+			coordinatesExplored++;
+			ClusterAbstraction.LocalSearch b=backward.get(abstraction.nodeCluster(u));
+			if(b!=null && b.distTo(abstraction.nodeCell(u))!=Integer.MAX_VALUE && cost[u]+b.distTo(abstraction.nodeCell(u))<best)
+			{
+				best=cost[u]+b.distTo(abstraction.nodeCell(u));
+				bestNode=u;
+			}
+			for(int e=abstraction.edgeStart(u);e<abstraction.edgeStart(u+1);++e)
+			{
+				int v=abstraction.edgeTarget(e);
+				int d=cost[u]+abstraction.edgeCost(e);
+				if(d<cost[v])
+				{
+					cost[v]=d;
+					parent[v]=u;
+					open.insertOrDecrease(v, d);
+				}
+			}
+		}
+
+		if(best==Integer.MAX_VALUE)
+			return new ArrayList<Coordinate>();
+		List<Integer> cells;
+		if(bestNode==-1)
+			cells=forward.get(abstraction.clusterOf(bestTarget)).path(bestTarget);
+		else
+			cells=refine(bestNode, parent, forward, backward);
+		List<Coordinate> path=new ArrayList<Coordinate>(cells.size());
+		for(int cell : cells)
+			path.add(cellAt(cell));
+		return path;
+	}
+
+	//turns the abstract path ending at the node into cells, searching only the clusters it passes through
+	private List<Integer> refine(int last, int[] parent, Map<Integer, ClusterAbstraction.LocalSearch> forward,
+		Map<Integer, ClusterAbstraction.LocalSearch> backward)
+	{
+		List<Integer> chain=new ArrayList<Integer>();
+		for(int u=last;u!=-1;u=parent[u])
+			chain.add(u);
+		Collections.reverse(chain);
+
+		int first=chain.get(0);
+		List<Integer> cells=forward.get(abstraction.nodeCluster(first)).path(abstraction.nodeCell(first));
+		ClusterAbstraction.LocalSearch refinement=abstraction.new LocalSearch();
+		int[] seed=new int[1];
+		for(int i=1;i<chain.size();++i)
+		{
+			int a=chain.get(i-1), b=chain.get(i);
+			if(abstraction.nodeCluster(a)!=abstraction.nodeCluster(b))
+			{
+				//inter edge, the two cells are neighbours
+				cells.add(abstraction.nodeCell(b));
+				continue;
+			}
+			seed[0]=abstraction.nodeCell(a);
+			refinement.run(abstraction.nodeCluster(a), seed, false, abstraction.nodeCell(b));
+			List<Integer> segment=refinement.path(abstraction.nodeCell(b));
+			cells.addAll(segment.subList(1, segment.size()));
+		}
+		coordinatesExplored+=refinement.settled;
+
+		List<Integer> tail=backward.get(abstraction.nodeCluster(last)).path(abstraction.nodeCell(last));
+		cells.addAll(tail.subList(1, tail.size()));
+		return cells;
+	}
+
+	//runs one local search per cluster that holds some of the seed cells
+	private Map<Integer, ClusterAbstraction.LocalSearch> localSearches(int[] seeds, boolean reverse)
+	{
+		Map<Integer, List<Integer>> byCluster=new HashMap<Integer, List<Integer>>();
+		for(int s : seeds)
+		{
+			int cl=abstraction.clusterOf(s);
+			if(!byCluster.containsKey(cl))
+				byCluster.put(cl, new ArrayList<Integer>());
+			byCluster.get(cl).add(s);
+		}
+		Map<Integer, ClusterAbstraction.LocalSearch> searches=new HashMap<Integer, ClusterAbstraction.LocalSearch>();
+		for(Map.Entry<Integer, List<Integer>> e : byCluster.entrySet())
+		{
+			int[] cells=new int[e.getValue().size()];
+			for(int i=0;i<cells.length;++i)
+				cells[i]=e.getValue().get(i);
+			ClusterAbstraction.LocalSearch search=abstraction.new LocalSearch();
+			search.run(e.getKey(), cells, reverse, -1);
+			coordinatesExplored+=search.settled;
+			searches.put(e.getKey(), search);
+		}
+		return searches;
+	}
+}
@@ -0,0 +1,260 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Incremental path finder that keeps its search state between calls (Lifelong Planning A*).
+ * Each leg keeps g, the cost found so far, and rhs, the cost one step back from the neighbours.
+ * When cells are blocked or change terrain cost, only those cells and their neighbours are updated,
+ * and the search only re-expands the cells whose cost actually changes, instead of the whole map.
+ * The changed cells are read from the journal of the map, when it has lost track of them
+ * (too many changes, or the map was re-initialised) the legs start again from scratch.
+ * Sources and targets are fixed per leg, so this is D* Lite without the moving start.
+ */
+public class IncrementalPathFinder extends GridPathFinder
+{
+	private static final int INF=Integer.MAX_VALUE;
+
+	// search state of the legs of the last query, by their sources and targets
+	private Map<LegKey, Leg> legs=new HashMap<LegKey, Leg>();
+	private Map<LegKey, Leg> used=new HashMap<LegKey, Leg>();
+	// version of the map the legs are up to date with
+	private long version;
+
+	//constructor initialized with the map
+	public IncrementalPathFinder(PathMap map)
+	{
+		super(map);
+		version=map.getVersion();
+	}
+
+	@Override
+	public List<Coordinate> findPath()
+	{
+		if(map.getVersion()!=version)
+		{
+			int[] changed=map.changedCellsSince(version);
+			if(changed==null)
+				legs.clear();
+			else
+				for(Leg leg : legs.values())
+					leg.cellsChanged(changed);
+			version=map.getVersion();
+		}
+		List<Coordinate> path=super.findPath();
+		//only the legs of the last query are kept
+		Map<LegKey, Leg> kept=used;
+		used=legs;
+		used.clear();
+		legs=kept;
+		return path;
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		LegKey key=new LegKey(passableIndices(sources), passableIndices(targets));
+		Leg leg=legs.get(key);
+		if(leg==null)
+			leg=new Leg(key.sources, key.targets);
+		used.put(key, leg);
+		return leg.path();
+	}
+
+	//search state of one leg, from a set of source cells to the nearest of a set of target cells
+	private class Leg
+	{
+		private final int[] sources, targets;
+		private final boolean[] isSource;
+		private final int[] g, rhs;
+		private final IndexedMinHeap open;
+		// smallest terrain cost when the heuristic was set up, it stays consistent while no cost drops below it
+		private int minCost;
+
+		Leg(int[] sources, int[] targets)
+		{
+			this.sources=sources;
+			this.targets=targets;
+			int n=cellCount();
+			isSource=new boolean[n];
+			g=new int[n];
+			rhs=new int[n];
+			open=new IndexedMinHeap(n);
+			for(int s : sources)
+				isSource[s]=true;
+			restart();
+		}
+
+		//forgets every cost, the next search runs from scratch
+		private void restart()
+		{
+			Arrays.fill(g, INF);
+			Arrays.fill(rhs, INF);
+			open.clear();
+			minCost=terrainCostRange()[0];
+			for(int s : sources)
+			{
+				rhs[s]=0;
+				open.update(s, key(s));
+			}
+		}
+
+		//the costs of the given cells may have changed, which also changes the costs one step back of their neighbours
+		void cellsChanged(int[] cells)
+		{
+			for(int cell : cells)
+				if(isPassable(cell) && terrainCost(cell)<minCost)
+				{
+					restart();
+					return;
+				}
+			int[] nbrs=new int[4];
+			for(int cell : cells)
+			{
+				updateCell(cell);
+				int count=neighbours(cell, nbrs);
+				for(int i=0;i<count;++i)
+					updateCell(nbrs[i]);
+			}
+		}
+
+		//recomputes rhs of the cell and puts it in the open set if it is inconsistent
+		private void updateCell(int cell)
+		{
+			if(!isSource[cell] || !isPassable(cell))
+				rhs[cell]=stepBack(cell);
+			else
+				rhs[cell]=0;
+			if(g[cell]!=rhs[cell])
+				open.update(cell, key(cell));
+			else
+				open.remove(cell);
+		}
+
+		//cheapest cost of reaching the cell from a passable neighbour, INF if there is none
+		private int stepBack(int cell)
+		{
+			if(!isPassable(cell))
+				return INF;
+			int best=INF;
+			int r=cell/map.sizeC, c=cell%map.sizeC;
+			for(int d=0;d<4;++d)
+			{
+				int nr=r+DR[d], nc=c+DC[d];
+				if(!map.isPassable(nr, nc))
+					continue;
+				int prev=g[nr*map.sizeC+nc];
+				if(prev!=INF)
+					best=Math.min(best, prev+terrainCost(cell));
+			}
+			return best;
+		}
+
+		private int key(int cell)
+		{
+			int cost=Math.min(g[cell], rhs[cell]);
+			return cost==INF ? INF : cost+heuristic(cell);
+		}
+
+		//Manhattan distance to the nearest target times the smallest terrain cost, consistent while no cost drops below it
+		private int heuristic(int cell)
+		{
+			int r=cell/map.sizeC, c=cell%map.sizeC;
+			int best=INF;
+			for(int t : targets)
+				best=Math.min(best, Math.abs(r-t/map.sizeC)+Math.abs(c-t%map.sizeC));
+			return best==INF ? 0 : best*minCost;
+		}
+
+		//the target with the smallest min(g, rhs), -1 if none has a cost
+		private int bestTarget()
+		{
+			int best=-1;
+			for(int t : targets)
+				if(Math.min(g[t], rhs[t])!=INF && (best==-1 || Math.min(g[t], rhs[t])<Math.min(g[best], rhs[best])))
+					best=t;
+			return best;
+		}
+
+		//expands inconsistent cells until the cost of the best target is exact
+		private void computeShortestPath()
+		{
+			int[] nbrs=new int[4];
+			while(!open.isEmpty())
+			{
+				int best=bestTarget();
+				//cells tied with the target are expanded too, so that every cell on its path is consistent
+				if(best!=-1 && open.peekKey()>key(best) && g[best]==rhs[best])
+					break;
+				int cell=open.poll();
+				coordinatesExplored++;
+				if(g[cell]>rhs[cell])
+					g[cell]=rhs[cell];
+				else
+				{
+					g[cell]=INF;
+					updateCell(cell);
+				}
+				int count=neighbours(cell, nbrs);
+				for(int i=0;i<count;++i)
+					updateCell(nbrs[i]);
+			}
+		}
+
+		//repairs the search and walks back from the best target along cells whose cost accounts for the step
+		List<Coordinate> path()
+		{
+			computeShortestPath();
+			int cell=bestTarget();
+			if(cell==-1 || g[cell]==INF)
+				return new ArrayList<Coordinate>();
+			List<Coordinate> path=new ArrayList<Coordinate>();
+			int[] nbrs=new int[4];
+			path.add(cellAt(cell));
+			while(!(isSource[cell] && g[cell]==0))
+			{
+				int count=neighbours(cell, nbrs);
+				int prev=-1;
+				for(int i=0;i<count && prev==-1;++i)
+					if(g[nbrs[i]]!=INF && g[nbrs[i]]+terrainCost(cell)==g[cell])
+						prev=nbrs[i];
+				//only with zero terrain costs could the walk go round in circles
+				if(prev==-1 || path.size()>cellCount())
+					return new ArrayList<Coordinate>();
+				cell=prev;
+				path.add(cellAt(cell));
+			}
+			Collections.reverse(path);
+			return path;
+		}
+	}
+
+	//sources and targets of a leg
+	private static final class LegKey
+	{
+		private final int[] sources, targets;
+
+		LegKey(int[] sources, int[] targets)
+		{
+			this.sources=sources;
+			this.targets=targets;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof LegKey))
+				return false;
+			LegKey k=(LegKey) o;
+			return Arrays.equals(sources, k.sources) && Arrays.equals(targets, k.targets);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31*Arrays.hashCode(sources)+Arrays.hashCode(targets);
+		}
+	}
+}
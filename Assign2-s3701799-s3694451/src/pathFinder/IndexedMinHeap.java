@@ -0,0 +1,154 @@
+package pathFinder;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over cell indices (r*sizeC+c) with decrease-key, plus key updates
+ * in either direction and removal for the incremental searches.
+ * Ties on the key are broken by the smaller index, which is the same order
+ * a row-major linear scan for the minimum would pick.
+ */
+public class IndexedMinHeap
+{
+	private int[] heap;
+	private int[] keys;
+	private int[] position;
+	private int size=0;
+
+	//constructor with the number of cells that can be stored
+	public IndexedMinHeap(int capacity)
+	{
+		heap=new int[capacity];
+		keys=new int[capacity];
+		position=new int[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	public boolean isEmpty() { return size==0; }
+
+	public int size() { return size; }
+
+	public boolean contains(int index) { return position[index]>=0; }
+
+	//returns the key of the given index, only valid while it is in the heap
+	public int keyOf(int index) { return keys[index]; }
+
+	//returns the smallest key in the heap
+	public int peekKey() { return keys[heap[0]]; }
+
+	//returns the index with the smallest key without removing it
+	public int peek() { return heap[0]; }
+
+	//adds the index with the given key, or lowers its key if already present
+	public boolean insertOrDecrease(int index, int key)
+	{
+		int pos=position[index];
+		if(pos<0)
+		{
+			keys[index]=key;
+			heap[size]=index;
+			position[index]=size;
+			siftUp(size++);
+			return true;
+		}
+		if(key<keys[index])
+		{
+			keys[index]=key;
+			siftUp(pos);
+			return true;
+		}
+		return false;
+	}
+
+	//sets the key of the index, adding it if absent, raising or lowering it otherwise
+	public void update(int index, int key)
+	{
+		int pos=position[index];
+		if(pos<0 || key<keys[index])
+		{
+			insertOrDecrease(index, key);
+			return;
+		}
+		keys[index]=key;
+		siftDown(pos);
+	}
+
+	//removes the index if it is in the heap
+	public void remove(int index)
+	{
+		int pos=position[index];
+		if(pos<0)
+			return;
+		position[index]=-1;
+		if(--size>pos)
+		{
+			int moved=heap[size];
+			heap[pos]=moved;
+			position[moved]=pos;
+			siftDown(pos);
+			siftUp(position[moved]);
+		}
+	}
+
+	//removes and returns the index with the smallest key
+	public int poll()
+	{
+		int top=heap[0];
+		position[top]=-1;
+		if(--size>0)
+		{
+			heap[0]=heap[size];
+			position[heap[0]]=0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	//empties the heap, costs only the number of entries still stored
+	public void clear()
+	{
+		for(int i=0;i<size;++i)
+			position[heap[i]]=-1;
+		size=0;
+	}
+
+	private boolean less(int a, int b)
+	{
+		return keys[a]<keys[b] || (keys[a]==keys[b] && a<b);
+	}
+
+	private void siftUp(int pos)
+	{
+		int item=heap[pos];
+		while(pos>0)
+		{
+			int parent=(pos-1)>>>1;
+			if(!less(item, heap[parent]))
+				break;
+			heap[pos]=heap[parent];
+			position[heap[pos]]=pos;
+			pos=parent;
+		}
+		heap[pos]=item;
+		position[item]=pos;
+	}
+
+	private void siftDown(int pos)
+	{
+		int item=heap[pos];
+		int half=size>>>1;
+		while(pos<half)
+		{
+			int child=2*pos+1;
+			if(child+1<size && less(heap[child+1], heap[child]))
+				child++;
+			if(!less(heap[child], item))
+				break;
+			heap[pos]=heap[child];
+			position[heap[pos]]=pos;
+			pos=child;
+		}
+		heap[pos]=item;
+		position[item]=pos;
+	}
+}
@@ -0,0 +1,315 @@
+package pathFinder;
+
+import java.util.*;
+import map.CompactGrid;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Jump Point Search adapted to the 4-connected grid and to terrain costs.
+ * Cells whose terrain cost is the smallest cost of the map are uniform, and in uniform regions
+ * paths are taken in canonical order: vertical moves may turn left or right at any cell,
+ * horizontal moves only turn when forced by an obstacle behind the turn.
+ * Straight runs are jumped over instead of being pushed cell by cell, and a jump stops at targets,
+ * at forced turns, at cells where a sideways jump would stop, and at terrain-cost boundaries.
+ * Non-uniform cells and the uniform cells next to them are expanded normally in all 4 directions.
+ * Whether a sideways jump from a cell would stop is read from flags kept per map version, and from the
+ * rows of the targets, so a vertical jump costs O(1) per cell instead of two horizontal scans.
+ */
+public class JumpPointPathFinder extends GridPathFinder
+{
+	private static final int UP=0, DOWN=1, LEFT=2, RIGHT=3;
+	private static final int ALL_DIRECTIONS=0xF;
+
+	private int uniformCost;
+	// bit set, uniform cells that are not on a terrain-cost boundary
+	private long[] plain;
+	// bit sets, a jump left (right) ends at the cell: a wall, a cell that is not plain, or a forced turn
+	private long[] endsLeft, endsRight;
+	// bit set, a jump left or right from the cell stops at a jump point before a wall, targets aside
+	private long[] stopsSideways;
+	// bit sets, the targets, and the cells in the same row as a target with no wall between them
+	private long[] targetCells, targetRows;
+	// version of the map the flags are up to date with
+	private long version=-1;
+	// directions each reached cell was reached in as a bit set, 0 means expand in all directions
+	private int[] arrivals;
+	// workspace of the running search
+	private SearchWorkspace workspace;
+
+	//constructor initialized with the map
+	public JumpPointPathFinder(PathMap map)
+	{
+		super(map);
+	}
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		int[] targetCells=passableIndices(targets);
+		if(targetCells.length==0)
+			return new ArrayList<Coordinate>();
+		if(map.getVersion()!=version)
+			findSidewaysStops();
+
+		workspace=SearchWorkspace.acquire(map);
+		try
+		{
+			for(int t : targetCells)
+			{
+				workspace.markTarget(t);
+				set(this.targetCells, t, true);
+				markTargetRow(t, true);
+			}
+			return search(passableIndices(sources));
+		}
+		finally
+		{
+			for(int t : targetCells)
+			{
+				set(this.targetCells, t, false);
+				markTargetRow(t, false);
+			}
+			SearchWorkspace.release(map, workspace);
+			workspace=null;
+		}
+	}
+
+	private List<Coordinate> search(int[] sources)
+	{
+		IndexedMinHeap open=workspace.open();
+		for(int s : sources)
+		{
+			workspace.update(s, 0, -1);
+			arrivals[s]=0;
+			open.insertOrDecrease(s, 0);
+		}
+
+		while(!open.isEmpty())
+		{
+			int v=open.poll();
+			workspace.close(v);
+			coordinatesExplored++;
+			if(workspace.isTarget(v))
+				return buildJumpPath(v);
+
+			int directions=successorDirections(v, arrivals[v]);
+			for(int d=0;d<4;++d)
+			{
+				if((directions&(1<<d))==0)
+					continue;
+				int w=jump(v, d);
+				if(w==-1 || workspace.isClosed(w))
+					continue;
+				int steps=Math.abs(w/map.sizeC-v/map.sizeC)+Math.abs(w%map.sizeC-v%map.sizeC);
+				//all cells jumped over are uniform
+				int g=workspace.cost(v)+(steps-1)*uniformCost+terrainCost(w);
+				if(g<workspace.cost(w))
+				{
+					workspace.update(w, g, v);
+					arrivals[w]=1<<d;
+					open.insertOrDecrease(w, g);
+				}
+				else if(g==workspace.cost(w) && arrivals[w]!=0)
+					arrivals[w]|=1<<d;
+			}
+		}
+		return new ArrayList<Coordinate>();
+	}
+
+	//returns the directions to jump in from the cell, given the directions it was reached in
+	private int successorDirections(int v, int arrivalMask)
+	{
+		int r=v/map.sizeC, c=v%map.sizeC;
+		if(arrivalMask==0 || !isSet(plain, v))
+			return ALL_DIRECTIONS;
+		int directions=0;
+		for(int d=0;d<4;++d)
+		{
+			if((arrivalMask&(1<<d))==0)
+				continue;
+			directions|=1<<d;
+			if(d==UP || d==DOWN)
+				directions|=(1<<LEFT)|(1<<RIGHT);
+			else
+			{
+				//turns are forced when the cell diagonally behind is not uniform
+				if(isUniform(r-1, c) && !isUniform(r-1, c-DC[d]))
+					directions|=1<<UP;
+				if(isUniform(r+1, c) && !isUniform(r+1, c-DC[d]))
+					directions|=1<<DOWN;
+			}
+		}
+		return directions;
+	}
+
+	//moves from the cell in direction d until a jump point is found, returns -1 if a wall is hit first
+	private int jump(int v, int d)
+	{
+		if(d==LEFT || d==RIGHT)
+			return jumpSideways(v, d);
+		CompactGrid grid=map.getGrid();
+		int r=v/map.sizeC, c=v%map.sizeC;
+		while(true)
+		{
+			r+=DR[d];
+			if(!grid.isPassable(r, c))
+				return -1;
+			int cell=r*map.sizeC+c;
+			//a vertical jump also stops where a jump left or right would stop
+			if(!isSet(plain, cell) || isSet(stopsSideways, cell) || isSet(targetRows, cell) || workspace.isTarget(cell))
+				return cell;
+		}
+	}
+
+	//a horizontal jump, 64 cells at a time: the first cell of the row where it ends or that is a target
+	private int jumpSideways(int v, int d)
+	{
+		int rowStart=v-v%map.sizeC, rowEnd=rowStart+map.sizeC-1;
+		int cell=d==RIGHT ? nextSet(endsRight, v+1, rowEnd) : previousSet(endsLeft, v-1, rowStart);
+		if(cell==-1 || !map.getGrid().isPassable(cell))
+			return -1;
+		return cell;
+	}
+
+	//first cell from from to to that is set in the bits or is a target, -1 if there is none
+	private int nextSet(long[] bits, int from, int to)
+	{
+		if(from>to)
+			return -1;
+		int w=from>>>6;
+		long word=(bits[w] | targetCells[w]) & (-1L<<from);
+		while(word==0)
+		{
+			if(++w>to>>>6)
+				return -1;
+			word=bits[w] | targetCells[w];
+		}
+		int cell=(w<<6)+Long.numberOfTrailingZeros(word);
+		return cell<=to ? cell : -1;
+	}
+
+	//last cell from from down to to that is set in the bits or is a target, -1 if there is none
+	private int previousSet(long[] bits, int from, int to)
+	{
+		if(from<to)
+			return -1;
+		int w=from>>>6;
+		long word=(bits[w] | targetCells[w]) & (-1L>>>(63-(from&63)));
+		while(word==0)
+		{
+			if(--w<to>>>6)
+				return -1;
+			word=bits[w] | targetCells[w];
+		}
+		int cell=(w<<6)+63-Long.numberOfLeadingZeros(word);
+		return cell>=to ? cell : -1;
+	}
+
+	//a horizontal move in direction d is forced to turn at the cell when the cell diagonally behind is not uniform
+	private boolean isForced(int r, int c, int d)
+	{
+		return (isUniform(r-1, c) && !isUniform(r-1, c-DC[d])) || (isUniform(r+1, c) && !isUniform(r+1, c-DC[d]));
+	}
+
+	//finds where jumps end, and for every cell whether a jump left or right from it would stop before a wall
+	private void findSidewaysStops()
+	{
+		int n=cellCount();
+		uniformCost=terrainCostRange()[0];
+		plain=new long[(n+63)>>>6];
+		endsLeft=new long[(n+63)>>>6];
+		endsRight=new long[(n+63)>>>6];
+		stopsSideways=new long[(n+63)>>>6];
+		targetCells=new long[(n+63)>>>6];
+		targetRows=new long[(n+63)>>>6];
+		arrivals=new int[n];
+		for(int r=0;r<map.sizeR;++r)
+			for(int c=0;c<map.sizeC;++c)
+			{
+				int cell=r*map.sizeC+c;
+				boolean isPlain=isUniform(r, c) && !isBoundary(r, c);
+				set(plain, cell, isPlain);
+				set(endsLeft, cell, !isPlain || isForced(r, c, LEFT));
+				set(endsRight, cell, !isPlain || isForced(r, c, RIGHT));
+			}
+		for(int r=0;r<map.sizeR;++r)
+		{
+			//whether a jump entering the cell would stop at it or further on
+			boolean stops=false;
+			for(int c=map.sizeC-1;c>=0;--c)
+			{
+				int cell=r*map.sizeC+c;
+				if(stops)
+					set(stopsSideways, cell, true);
+				stops=map.isPassable(r, c) && (stops || isSet(endsRight, cell));
+			}
+			stops=false;
+			for(int c=0;c<map.sizeC;++c)
+			{
+				int cell=r*map.sizeC+c;
+				if(stops)
+					set(stopsSideways, cell, true);
+				stops=map.isPassable(r, c) && (stops || isSet(endsLeft, cell));
+			}
+		}
+		version=map.getVersion();
+	}
+
+	//marks or clears the cells of the row of the target that can see it without a wall between them
+	private void markTargetRow(int target, boolean mark)
+	{
+		int r=target/map.sizeC, c=target%map.sizeC;
+		for(int left=c;left>=0 && map.isPassable(r, left);--left)
+			set(targetRows, r*map.sizeC+left, mark);
+		for(int right=c+1;right<map.sizeC && map.isPassable(r, right);++right)
+			set(targetRows, r*map.sizeC+right, mark);
+	}
+
+	private static boolean isSet(long[] bits, int cell)
+	{
+		return (bits[cell>>>6] & (1L<<cell))!=0;
+	}
+
+	private static void set(long[] bits, int cell, boolean value)
+	{
+		if(value)
+			bits[cell>>>6]|=1L<<cell;
+		else
+			bits[cell>>>6]&=~(1L<<cell);
+	}
+
+	//passable with the smallest terrain cost
+	private boolean isUniform(int r, int c)
+	{
+		return map.getGrid().isPassable(r, c) && map.getGrid().terrainCost(r*map.sizeC+c)==uniformCost;
+	}
+
+	//a uniform cell with a passable neighbour of a different terrain cost
+	private boolean isBoundary(int r, int c)
+	{
+		for(int d=0;d<4;++d)
+			if(map.isPassable(r+DR[d], c+DC[d]) && !isUniform(r+DR[d], c+DC[d]))
+				return true;
+		return false;
+	}
+
+	//walks the parent links between jump points and fills in the straight runs between them
+	private List<Coordinate> buildJumpPath(int target)
+	{
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		for(int curr=target;curr!=-1;curr=workspace.parent(curr))
+		{
+			path.add(cellAt(curr));
+			if(workspace.parent(curr)==-1)
+				break;
+			int r=curr/map.sizeC, c=curr%map.sizeC;
+			int pr=workspace.parent(curr)/map.sizeC, pc=workspace.parent(curr)%map.sizeC;
+			int dr=Integer.signum(pr-r), dc=Integer.signum(pc-c);
+			for(r+=dr, c+=dc;r!=pr || c!=pc;r+=dr, c+=dc)
+				path.add(map.cells[r][c]);
+		}
+		Collections.reverse(path);
+		return path;
+	}
+}
@@ -0,0 +1,61 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * A* with ALT heuristics: the triangle inequality over the distances of a LandmarkSet.
+ * The bound to each target is the larger of the landmark bound and the scaled Manhattan distance,
+ * both consistent, so the search stays exact with a closed set. The landmark bound follows the
+ * terrain costs, where the Manhattan distance only knows the smallest one. If the map has changed
+ * since the landmarks were computed, only the Manhattan distance is used.
+ */
+public class LandmarkPathFinder extends AStarPathFinder
+{
+	// landmarks chosen when the finder builds its own set
+	public static final int DEFAULT_LANDMARKS=8;
+
+	private final LandmarkSet landmarks;
+	// whether the landmarks match the map during the current search
+	private boolean useLandmarks=false;
+
+	//constructor initialized with the map, builds its own landmarks
+	public LandmarkPathFinder(PathMap map)
+	{
+		this(map, LandmarkSet.build(map, DEFAULT_LANDMARKS, LandmarkSet.Selection.AVOID));
+	}
+
+	//constructor with landmarks built or loaded for the map
+	public LandmarkPathFinder(PathMap map, LandmarkSet landmarks)
+	{
+		super(map);
+		this.landmarks=landmarks;
+	}
+
+	public LandmarkSet landmarks() { return landmarks; }
+
+	@Override
+	protected List<Coordinate> search(List<Coordinate> sources, List<Coordinate> targets)
+	{
+		useLandmarks=landmarks.isValidFor(map);
+		return super.search(sources, targets);
+	}
+
+	//best lower bound to the nearest target
+	@Override
+	protected int heuristic(int cell, int[] targets, int minCost)
+	{
+		int r=cell/map.sizeC, c=cell%map.sizeC;
+		int cellCost=terrainCost(cell);
+		int best=Integer.MAX_VALUE;
+		for(int t : targets)
+		{
+			int bound=(Math.abs(r-t/map.sizeC)+Math.abs(c-t%map.sizeC))*minCost;
+			if(useLandmarks)
+				bound=Math.max(bound, landmarks.lowerBound(cell, t, cellCost, terrainCost(t)));
+			best=Math.min(best, bound);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,472 @@
+package pathFinder;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import map.MapSnapshot;
+import map.PathMap;
+
+/**
+ * Landmarks of a map and the cost of the shortest path from each landmark to every cell,
+ * for the ALT (A*, landmarks, triangle inequality) lower bounds of LandmarkPathFinder.
+ * Landmarks are picked in batches as large as the pool, and the full Dijkstra of each
+ * landmark of a batch runs in parallel. A set can be saved and loaded again for the same map,
+ * so the preprocessing only has to run once per map.
+ */
+public final class LandmarkSet
+{
+	//how the landmarks are chosen
+	public enum Selection
+	{
+		// each landmark is the cell farthest from the landmarks chosen before it
+		FARTHEST,
+		// each landmark is at the end of the shortest path tree branch that the current landmarks bound worst
+		AVOID
+	}
+
+	// distance stored for a cell that cannot be reached from the landmark
+	public static final int UNREACHABLE=Integer.MAX_VALUE;
+	// "ALT1", first int of a saved set
+	private static final int MAGIC=0x414c5431;
+
+	private final int sizeR, sizeC;
+	private final long fingerprint;
+	private final int[] landmarks;
+	// distances[i][cell] is the cost from landmark i to the cell
+	private final int[][] distances;
+	// version of the map the distances are correct for
+	private final long mapVersion;
+
+	private LandmarkSet(int sizeR, int sizeC, long fingerprint, int[] landmarks, int[][] distances, long mapVersion)
+	{
+		this.sizeR=sizeR;
+		this.sizeC=sizeC;
+		this.fingerprint=fingerprint;
+		this.landmarks=landmarks;
+		this.distances=distances;
+		this.mapVersion=mapVersion;
+	}
+
+	//landmarks chosen and searched on the common fork-join pool
+	public static LandmarkSet build(PathMap map, int count, Selection selection)
+	{
+		return build(map, count, selection, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Choose landmarks for the current state of the map and compute their distances.
+	 *
+	 * @param count Number of landmarks, fewer if the map has fewer passable cells.
+	 * @param selection How the landmarks are chosen.
+	 * @param pool Pool the searches of a batch of landmarks run on.
+	 */
+	public static LandmarkSet build(PathMap map, int count, Selection selection, ForkJoinPool pool)
+	{
+		//read the version first, a change made during the copy then leaves the set stale rather than wrongly current
+		long version=map.getVersion();
+		MapSnapshot snapshot=map.snapshot();
+		Builder builder=new Builder(snapshot, pool);
+		builder.select(count, selection);
+		int[] landmarks=new int[builder.landmarks.size()];
+		for(int i=0;i<landmarks.length;++i)
+			landmarks[i]=builder.landmarks.get(i);
+		int[][] distances=builder.distances.toArray(new int[landmarks.length][]);
+		return new LandmarkSet(snapshot.sizeR, snapshot.sizeC, fingerprint(snapshot), landmarks, distances, version);
+	}
+
+	public int count() { return landmarks.length; }
+
+	public int landmark(int i) { return landmarks[i]; }
+
+	//cost from landmark i to the cell, UNREACHABLE if there is no path
+	public int distance(int i, int cell) { return distances[i][cell]; }
+
+	//whether the distances are still those of the map, they are not once the map has changed
+	public boolean isValidFor(PathMap map)
+	{
+		return map.sizeR==sizeR && map.sizeC==sizeC && map.getVersion()==mapVersion;
+	}
+
+	/**
+	 * Lower bound on the cost from one cell to another, the best over the landmarks.
+	 * A move pays the terrain cost of the cell it enters, so the cost from x back to landmark L is
+	 * d(L,x)+cost(L)-cost(x), and the bound from the paths back to L is d(L,from)-d(L,to)+cost(to)-cost(from).
+	 *
+	 * @param fromCost Terrain cost of the from cell.
+	 * @param toCost Terrain cost of the to cell.
+	 */
+	public int lowerBound(int from, int to, int fromCost, int toCost)
+	{
+		int best=0;
+		for(int[] d : distances)
+		{
+			int dFrom=d[from], dTo=d[to];
+			//a landmark in another component bounds nothing
+			if(dFrom==UNREACHABLE || dTo==UNREACHABLE)
+				continue;
+			best=Math.max(best, Math.max(dTo-dFrom, dFrom-dTo+toCost-fromCost));
+		}
+		return best;
+	}
+
+	/**
+	 * Write the landmarks and their distances, to be loaded again for the same map.
+	 */
+	public void save(OutputStream out) throws IOException
+	{
+		DataOutputStream data=new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeInt(sizeR);
+		data.writeInt(sizeC);
+		data.writeLong(fingerprint);
+		data.writeInt(landmarks.length);
+		for(int i=0;i<landmarks.length;++i)
+		{
+			data.writeInt(landmarks[i]);
+			for(int d : distances[i])
+				data.writeInt(d);
+		}
+		data.flush();
+	}
+
+	public void save(File file) throws IOException
+	{
+		try(OutputStream out=new FileOutputStream(file))
+		{
+			save(out);
+		}
+	}
+
+	/**
+	 * Read landmarks saved by save(), checking that they were computed for the current state of the map.
+	 *
+	 * @throws IOException If the data is not a saved landmark set, or it was saved for another map.
+	 */
+	public static LandmarkSet load(InputStream in, PathMap map) throws IOException
+	{
+		DataInputStream data=new DataInputStream(new BufferedInputStream(in));
+		if(data.readInt()!=MAGIC)
+			throw new IOException("Not a saved landmark set.");
+		int sizeR=data.readInt(), sizeC=data.readInt();
+		long fingerprint=data.readLong();
+		long version=map.getVersion();
+		MapSnapshot snapshot=map.snapshot();
+		if(sizeR!=snapshot.sizeR || sizeC!=snapshot.sizeC || fingerprint!=fingerprint(snapshot))
+			throw new IOException("Landmarks were computed for another map.");
+		int count=data.readInt();
+		int[] landmarks=new int[count];
+		int[][] distances=new int[count][sizeR*sizeC];
+		for(int i=0;i<count;++i)
+		{
+			landmarks[i]=data.readInt();
+			for(int cell=0;cell<distances[i].length;++cell)
+				distances[i][cell]=data.readInt();
+		}
+		return new LandmarkSet(sizeR, sizeC, fingerprint, landmarks, distances, version);
+	}
+
+	public static LandmarkSet load(File file, PathMap map) throws IOException
+	{
+		try(InputStream in=new FileInputStream(file))
+		{
+			return load(in, map);
+		}
+	}
+
+	//hash of the passability and terrain cost of every cell
+	private static long fingerprint(MapSnapshot snapshot)
+	{
+		long hash=0xcbf29ce484222325L;
+		hash=(hash^snapshot.sizeR)*0x100000001b3L;
+		hash=(hash^snapshot.sizeC)*0x100000001b3L;
+		for(int cell=0;cell<snapshot.size();++cell)
+			hash=(hash^(snapshot.isPassable(cell) ? snapshot.terrainCost(cell) : -1))*0x100000001b3L;
+		return hash;
+	}
+
+	//state of the landmark selection
+	private static class Builder
+	{
+		private final MapSnapshot snapshot;
+		private final SnapshotPathFinder finder;
+		private final ForkJoinPool pool;
+		private final ThreadLocal<SearchWorkspace> workspaces;
+		private final List<Integer> landmarks=new ArrayList<Integer>();
+		private final List<int[]> distances=new ArrayList<int[]>();
+		// cost from the nearest landmark to each cell, UNREACHABLE if no landmark reaches it
+		private final int[] nearest;
+		private final Random random=new Random(1);
+
+		Builder(MapSnapshot snapshot, ForkJoinPool pool)
+		{
+			this.snapshot=snapshot;
+			this.finder=new SnapshotPathFinder(snapshot);
+			this.pool=pool;
+			workspaces=ThreadLocal.withInitial(() -> finder.newWorkspace());
+			nearest=new int[snapshot.size()];
+			Arrays.fill(nearest, UNREACHABLE);
+		}
+
+		void select(int count, Selection selection)
+		{
+			int passable=0;
+			for(int cell=0;cell<snapshot.size();++cell)
+				if(snapshot.isPassable(cell))
+					passable++;
+			count=Math.min(count, passable);
+			if(count==0)
+				return;
+
+			//the first landmark is the cell farthest from a random one, in a component holding at least half of the map if one is found
+			ShortestPathTree start=null;
+			for(int tries=0;tries<8 && (start==null || 2*start.settledCount()<passable);++tries)
+			{
+				ShortestPathTree tree=trees(new int[]{randomPassable()})[0];
+				if(start==null || tree.settledCount()>start.settledCount())
+					start=tree;
+			}
+			addLandmarks(new int[]{farthest(start)});
+			int batch=Math.max(1, pool.getParallelism());
+			while(landmarks.size()<count)
+			{
+				int size=Math.min(batch, count-landmarks.size());
+				addLandmarks(selection==Selection.FARTHEST ? farthestBatch(size) : avoidBatch(size));
+			}
+		}
+
+		//the next landmarks, each as far as possible from all the others
+		//within a batch the distance to the cells just picked is only estimated, by Manhattan distance times the smallest terrain cost
+		private int[] farthestBatch(int size)
+		{
+			int[] picked=new int[size];
+			int count=0;
+			for(int i=0;i<size;++i)
+			{
+				int best=-1;
+				long bestDistance=-1;
+				for(int cell=0;cell<snapshot.size();++cell)
+				{
+					if(!snapshot.isPassable(cell) || landmarks.contains(cell))
+						continue;
+					//cells no landmark reaches are only taken once nothing else is left, so small pockets cut off from the rest get none
+					long distance=reachedDistance(cell);
+					for(int j=0;j<count;++j)
+						distance=Math.min(distance, (long) manhattan(cell, picked[j])*snapshot.minTerrainCost());
+					if((best==-1 || distance>bestDistance) && !contains(picked, count, cell))
+					{
+						best=cell;
+						bestDistance=distance;
+					}
+				}
+				if(best==-1)
+					break;
+				picked[count++]=best;
+			}
+			return Arrays.copyOf(picked, count);
+		}
+
+		/**
+		 * The next landmarks by the avoid rule, one per random root, with the root trees built in parallel.
+		 * In the tree of the root, each cell weighs d(root,cell) minus its current lower bound, a subtree
+		 * weighs the sum of its cells, and subtrees holding a landmark weigh nothing. The landmark is the leaf
+		 * reached from the heaviest cell by always moving to the heaviest child.
+		 */
+		private int[] avoidBatch(int size)
+		{
+			int[] roots=new int[size];
+			for(int i=0;i<size;++i)
+				roots[i]=randomPassable();
+			ShortestPathTree[] trees=trees(roots);
+			int[] picked=new int[size];
+			int count=0;
+			for(int i=0;i<size;++i)
+			{
+				int landmark=avoid(roots[i], trees[i], picked, count);
+				if(landmark==-1)
+					landmark=farthestCell(picked, count);
+				if(landmark!=-1)
+					picked[count++]=landmark;
+			}
+			return Arrays.copyOf(picked, count);
+		}
+
+		private int avoid(int root, ShortestPathTree tree, int[] picked, int pickedCount)
+		{
+			int n=snapshot.size();
+			long[] weight=new long[n];
+			int[] pending=new int[n];
+			boolean[] hasLandmark=new boolean[n];
+			for(int cell=0;cell<n;++cell)
+			{
+				if(!tree.isReached(cell))
+					continue;
+				int bound=0;
+				for(int[] d : distances)
+					if(d[root]!=UNREACHABLE && d[cell]!=UNREACHABLE)
+						bound=Math.max(bound, Math.max(d[cell]-d[root], d[root]-d[cell]+snapshot.terrainCost(cell)-snapshot.terrainCost(root)));
+				weight[cell]=tree.cost(cell)-bound;
+				hasLandmark[cell]=landmarks.contains(cell) || contains(picked, pickedCount, cell);
+				if(tree.parent(cell)!=-1)
+					pending[tree.parent(cell)]++;
+			}
+
+			//subtree sizes, children before parents
+			Deque<Integer> ready=new ArrayDeque<Integer>();
+			for(int cell=0;cell<n;++cell)
+				if(tree.isReached(cell) && pending[cell]==0)
+					ready.add(cell);
+			while(!ready.isEmpty())
+			{
+				int cell=ready.poll();
+				if(hasLandmark[cell])
+					weight[cell]=0;
+				int parent=tree.parent(cell);
+				if(parent==-1)
+					continue;
+				weight[parent]+=weight[cell];
+				hasLandmark[parent]|=hasLandmark[cell];
+				if(--pending[parent]==0)
+					ready.add(parent);
+			}
+
+			int best=-1;
+			for(int cell=0;cell<n;++cell)
+				if(tree.isReached(cell) && weight[cell]>0 && (best==-1 || weight[cell]>weight[best]))
+					best=cell;
+			if(best==-1)
+				return -1;
+			//down to a leaf through the heaviest children
+			while(true)
+			{
+				int child=-1;
+				int r=best/snapshot.sizeC, c=best%snapshot.sizeC;
+				for(int d=0;d<4;++d)
+				{
+					int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+					if(!snapshot.isIn(nr, nc))
+						continue;
+					int next=snapshot.index(nr, nc);
+					if(tree.isReached(next) && tree.parent(next)==best && weight[next]>0 && (child==-1 || weight[next]>weight[child]))
+						child=next;
+				}
+				if(child==-1)
+					return best;
+				best=child;
+			}
+		}
+
+		//the cell farthest from the landmarks, for when the avoid rule finds nothing left to cover
+		private int farthestCell(int[] picked, int pickedCount)
+		{
+			int best=-1;
+			for(int cell=0;cell<snapshot.size();++cell)
+				if(snapshot.isPassable(cell) && !landmarks.contains(cell) && !contains(picked, pickedCount, cell)
+					&& (best==-1 || reachedDistance(cell)>reachedDistance(best)))
+					best=cell;
+			return best;
+		}
+
+		//searches from the new landmarks in parallel and keeps their distances
+		private void addLandmarks(int[] cells)
+		{
+			ShortestPathTree[] trees=trees(cells);
+			for(int i=0;i<cells.length;++i)
+			{
+				int[] d=new int[snapshot.size()];
+				for(int cell=0;cell<d.length;++cell)
+				{
+					d[cell]=trees[i].cost(cell);
+					nearest[cell]=Math.min(nearest[cell], d[cell]);
+				}
+				landmarks.add(cells[i]);
+				distances.add(d);
+			}
+		}
+
+		//complete shortest path trees from each of the cells, in parallel
+		private ShortestPathTree[] trees(int[] sources)
+		{
+			ShortestPathTree[] trees=new ShortestPathTree[sources.length];
+			if(sources.length>0)
+				pool.invoke(new TreeTask(sources, trees, 0, sources.length));
+			return trees;
+		}
+
+		private int farthest(ShortestPathTree tree)
+		{
+			int best=-1;
+			for(int cell=0;cell<tree.size();++cell)
+				if(tree.isReached(cell) && (best==-1 || tree.cost(cell)>tree.cost(best)))
+					best=cell;
+			return best;
+		}
+
+		private int randomPassable()
+		{
+			int n=snapshot.size();
+			for(int tries=0;tries<64;++tries)
+			{
+				int cell=random.nextInt(n);
+				if(snapshot.isPassable(cell))
+					return cell;
+			}
+			int start=random.nextInt(n);
+			for(int i=0;i<n;++i)
+				if(snapshot.isPassable((start+i)%n))
+					return (start+i)%n;
+			return -1;
+		}
+
+		//cost from the nearest landmark, -1 if no landmark reaches the cell
+		private long reachedDistance(int cell)
+		{
+			return nearest[cell]==UNREACHABLE ? -1 : nearest[cell];
+		}
+
+		private int manhattan(int a, int b)
+		{
+			return Math.abs(a/snapshot.sizeC-b/snapshot.sizeC)+Math.abs(a%snapshot.sizeC-b%snapshot.sizeC);
+		}
+
+		private static boolean contains(int[] cells, int count, int cell)
+		{
+			for(int i=0;i<count;++i)
+				if(cells[i]==cell)
+					return true;
+			return false;
+		}
+
+		//builds the trees of a range of sources, splitting it between the workers
+		private class TreeTask extends RecursiveAction
+		{
+			private static final long serialVersionUID=1L;
+
+			private final int[] sources;
+			private final ShortestPathTree[] trees;
+			private final int from, to;
+
+			TreeTask(int[] sources, ShortestPathTree[] trees, int from, int to)
+			{
+				this.sources=sources;
+				this.trees=trees;
+				this.from=from;
+				this.to=to;
+			}
+
+			@Override
+			protected void compute()
+			{
+				if(to-from==1)
+				{
+					SearchWorkspace workspace=workspaces.get();
+					finder.search(new int[]{sources[from]}, new int[0], workspace);
+					trees[from]=new ShortestPathTree(workspace);
+					return;
+				}
+				int mid=(from+to)>>>1;
+				invokeAll(new TreeTask(sources, trees, from, mid), new TreeTask(sources, trees, mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Immutable path finding query: origins, destinations and the waypoints to visit in order.
+ * Any origin and any destination will do, so two queries are equal when they have the same
+ * sets of origins and destinations, whatever their order and repeats, and the same waypoints in order.
+ */
+public final class PathQuery
+{
+	private final List<Coordinate> origins;
+	private final List<Coordinate> destinations;
+	private final List<Coordinate> waypoints;
+	// the origins and destinations sorted by row and column, without repeats
+	private final List<Coordinate> originSet, destinationSet;
+
+	public PathQuery(List<Coordinate> origins, List<Coordinate> destinations, List<Coordinate> waypoints)
+	{
+		this.origins=copy(origins);
+		this.destinations=copy(destinations);
+		this.waypoints=copy(waypoints);
+		originSet=normalise(this.origins);
+		destinationSet=normalise(this.destinations);
+	}
+
+	//the query of the origins, destinations and waypoints currently set on the map
+	public static PathQuery of(PathMap map)
+	{
+		return new PathQuery(map.originCells, map.destCells, map.waypointCells);
+	}
+
+	public List<Coordinate> getOrigins() { return origins; }
+
+	public List<Coordinate> getDestinations() { return destinations; }
+
+	public List<Coordinate> getWaypoints() { return waypoints; }
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(this==o)
+			return true;
+		if(!(o instanceof PathQuery))
+			return false;
+		PathQuery q=(PathQuery) o;
+		return originSet.equals(q.originSet) && destinationSet.equals(q.destinationSet) && waypoints.equals(q.waypoints);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(originSet, destinationSet, waypoints);
+	}
+
+	private static List<Coordinate> normalise(List<Coordinate> coords)
+	{
+		List<Coordinate> sorted=new ArrayList<Coordinate>(new LinkedHashSet<Coordinate>(coords));
+		sorted.sort(Comparator.comparingInt(Coordinate::getRow).thenComparingInt(Coordinate::getColumn));
+		return sorted;
+	}
+
+	//copies the row and column only, so later changes to the given coordinates are not seen
+	private static List<Coordinate> copy(List<Coordinate> coords)
+	{
+		List<Coordinate> copy=new ArrayList<Coordinate>();
+		if(coords!=null)
+			for(Coordinate c : coords)
+				copy.add(new Coordinate(c.getRow(), c.getColumn()));
+		return Collections.unmodifiableList(copy);
+	}
+}
@@ -0,0 +1,31 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+
+/**
+ * Immutable result of a path finding query.
+ */
+public final class PathResult
+{
+	private final List<Coordinate> path;
+	private final int cost;
+	private final int coordinatesExplored;
+
+	public PathResult(List<Coordinate> path, int cost, int coordinatesExplored)
+	{
+		this.path=Collections.unmodifiableList(new ArrayList<Coordinate>(path));
+		this.cost=cost;
+		this.coordinatesExplored=coordinatesExplored;
+	}
+
+	//the path from an origin through the waypoints to a destination, empty if there is none
+	public List<Coordinate> getPath() { return path; }
+
+	public boolean isFound() { return !path.isEmpty(); }
+
+	//sum of the terrain costs of the cells moved into, -1 if no path was found
+	public int getCost() { return cost; }
+
+	public int getCoordinatesExplored() { return coordinatesExplored; }
+}
@@ -0,0 +1,135 @@
+package pathFinder;
+
+import java.util.*;
+import map.CompactGrid;
+import map.PathMap;
+
+/**
+ * Per-cell search state (cost, parent, closed and target flags, open set) that can be reset in O(1).
+ * Every entry carries the generation it was written in, and entries from older generations read as
+ * unreached, so a reset only bumps the generation and a search only writes the cells it touches.
+ * Workspaces are pooled per map, a finder acquires one for a search and releases it afterwards.
+ * A workspace also keeps the bitsets of a breadth-first search, made on first use.
+ */
+public class SearchWorkspace
+{
+	private static final Map<PathMap, Deque<SearchWorkspace>> pool=new WeakHashMap<PathMap, Deque<SearchWorkspace>>();
+
+	private final int size;
+	private final int[] cost;
+	private final int[] parent;
+	private final int[] reached;
+	private final int[] closed;
+	private final int[] target;
+	private final IndexedMinHeap open;
+	private int generation=1;
+	// cells closed since the last reset
+	private int closedCount=0;
+	// breadth-first search state, for the grid of the map when it was made
+	private BitsetBreadthFirstSearch bitsetSearch;
+
+	//workspace for a map with the given number of cells
+	public SearchWorkspace(int size)
+	{
+		this.size=size;
+		cost=new int[size];
+		parent=new int[size];
+		reached=new int[size];
+		closed=new int[size];
+		target=new int[size];
+		open=new IndexedMinHeap(size);
+	}
+
+	//takes a workspace for the map from the pool, or creates one
+	public static SearchWorkspace acquire(PathMap map)
+	{
+		int size=map.sizeR*map.sizeC;
+		synchronized(pool)
+		{
+			Deque<SearchWorkspace> free=pool.get(map);
+			while(free!=null && !free.isEmpty())
+			{
+				SearchWorkspace workspace=free.pop();
+				//the map may have been re-initialised with another size
+				if(workspace.size==size)
+				{
+					workspace.reset();
+					return workspace;
+				}
+			}
+		}
+		return new SearchWorkspace(size);
+	}
+
+	//returns the workspace to the pool of the map
+	public static void release(PathMap map, SearchWorkspace workspace)
+	{
+		synchronized(pool)
+		{
+			Deque<SearchWorkspace> free=pool.get(map);
+			if(free==null)
+			{
+				free=new ArrayDeque<SearchWorkspace>();
+				pool.put(map, free);
+			}
+			free.push(workspace);
+		}
+	}
+
+	public int size() { return size; }
+
+	//forgets every cell, the arrays are only cleared when the generation counter wraps around
+	public void reset()
+	{
+		open.clear();
+		closedCount=0;
+		if(++generation==Integer.MAX_VALUE)
+		{
+			Arrays.fill(reached, 0);
+			Arrays.fill(closed, 0);
+			Arrays.fill(target, 0);
+			generation=1;
+		}
+	}
+
+	public IndexedMinHeap open() { return open; }
+
+	//cost of the cell, MAX_VALUE if it has not been reached in this search
+	public int cost(int cell) { return reached[cell]==generation ? cost[cell] : Integer.MAX_VALUE; }
+
+	//parent of a reached cell, -1 for a source
+	public int parent(int cell) { return parent[cell]; }
+
+	public boolean isReached(int cell) { return reached[cell]==generation; }
+
+	//sets the cost and parent of the cell
+	public void update(int cell, int cost, int parent)
+	{
+		reached[cell]=generation;
+		this.cost[cell]=cost;
+		this.parent[cell]=parent;
+	}
+
+	public boolean isClosed(int cell) { return closed[cell]==generation; }
+
+	public void close(int cell)
+	{
+		closed[cell]=generation;
+		closedCount++;
+	}
+
+	//number of cells closed since the last reset
+	public int closedCount() { return closedCount; }
+
+	public boolean isTarget(int cell) { return target[cell]==generation; }
+
+	public void markTarget(int cell) { target[cell]=generation; }
+
+	//breadth-first search state for the grid, made again only when the map has a new grid
+	BitsetBreadthFirstSearch bitsetSearch(CompactGrid grid)
+	{
+		if(bitsetSearch==null || !bitsetSearch.isFor(grid))
+			bitsetSearch=new BitsetBreadthFirstSearch(grid);
+		return bitsetSearch;
+	}
+}
@@ -0,0 +1,77 @@
+package pathFinder;
+
+import java.util.*;
+
+/**
+ * Immutable shortest path tree of a complete Dijkstra from a set of source cells.
+ * It holds the cost of every cell and its parent on a shortest path, so the path to any cell
+ * is found by walking parents, in O(path length). Ties are broken as in the search, so the
+ * paths are the ones a Dijkstra stopping at the cell would have found.
+ */
+public final class ShortestPathTree
+{
+	// cost of each cell, MAX_VALUE for unreachable cells
+	private final int[] cost;
+	// parent of each cell, -1 for the sources and unreachable cells
+	private final int[] parent;
+	private final int settledCount;
+
+	//copies the tree of a search that ran until its open set was empty
+	ShortestPathTree(SearchWorkspace workspace)
+	{
+		int size=workspace.size();
+		cost=new int[size];
+		parent=new int[size];
+		for(int i=0;i<size;++i)
+		{
+			cost[i]=workspace.cost(i);
+			parent[i]=workspace.isReached(i) ? workspace.parent(i) : -1;
+		}
+		settledCount=workspace.closedCount();
+	}
+
+	public int size() { return cost.length; }
+
+	//cost of the cell, MAX_VALUE if it cannot be reached
+	public int cost(int cell) { return cost[cell]; }
+
+	public boolean isReached(int cell) { return cost[cell]!=Integer.MAX_VALUE; }
+
+	//parent of a reached cell, -1 for a source
+	public int parent(int cell) { return parent[cell]; }
+
+	//cells settled to build the tree
+	public int settledCount() { return settledCount; }
+
+	/**
+	 * The reachable target with the smallest cost, ties going to the lower cell index as in the search.
+	 *
+	 * @return The target, or -1 if none can be reached.
+	 */
+	public int nearest(int[] targets)
+	{
+		int best=-1;
+		for(int t : targets)
+			if(isReached(t) && (best==-1 || cost[t]<cost[best] || (cost[t]==cost[best] && t<best)))
+				best=t;
+		return best;
+	}
+
+	//cells from a source to the reached cell
+	public int[] path(int cell)
+	{
+		int length=0;
+		for(int curr=cell;curr!=-1;curr=parent[curr])
+			length++;
+		int[] path=new int[length];
+		for(int curr=cell;curr!=-1;curr=parent[curr])
+			path[--length]=curr;
+		return path;
+	}
+
+	//approximate memory used by the tree, in bytes
+	public long footprintBytes()
+	{
+		return 8L*cost.length;
+	}
+}
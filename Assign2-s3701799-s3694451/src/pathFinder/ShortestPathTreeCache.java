@@ -0,0 +1,195 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Shortest path trees of a map, shared between queries and kept within a memory budget.
+ * A tree is built the first time its set of source cells is asked for, by a Dijkstra that settles
+ * every reachable cell, and every later query from the same sources reuses it. When the trees take
+ * more than the budget, the least recently used ones are evicted. A change to the map drops all trees.
+ * The cache can be shared by threads: trees for different sources are built at the same time outside
+ * the lock, which only guards the kept trees and the counters, and a thread asking for a tree that
+ * is being built waits for it instead of building it again.
+ */
+public class ShortestPathTreeCache
+{
+	private final PathMap map;
+	private final long budgetBytes;
+	// trees by their sorted source cells, in access order
+	private final LinkedHashMap<List<Integer>, ShortestPathTree> trees=new LinkedHashMap<List<Integer>, ShortestPathTree>(16, 0.75f, true);
+	// trees being built, by their sorted source cells
+	private final Map<List<Integer>, CompletableFuture<ShortestPathTree>> building=new HashMap<List<Integer>, CompletableFuture<ShortestPathTree>>();
+	// workspaces of the finder not used by a build
+	private final Deque<SearchWorkspace> workspaces=new ArrayDeque<SearchWorkspace>();
+	private long usedBytes=0;
+	// version of the map the trees were built on
+	private long version;
+	private SnapshotPathFinder finder=null;
+	private long hits=0, misses=0, evictions=0, cellsSettled=0;
+
+	/**
+	 * @param map The map the trees are built on.
+	 * @param budgetBytes Largest memory taken by the kept trees, see ShortestPathTree.footprintBytes().
+	 */
+	public ShortestPathTreeCache(PathMap map, long budgetBytes)
+	{
+		this.map=map;
+		this.budgetBytes=budgetBytes;
+		this.version=map.getVersion();
+	}
+
+	/**
+	 * The shortest path tree from the passable cells among the sources.
+	 */
+	public ShortestPathTree tree(List<Coordinate> sources)
+	{
+		return tree(sources, new int[1]);
+	}
+
+	/**
+	 * The shortest path tree from the passable cells among the sources.
+	 *
+	 * @param settled settled[0] is set to the cells settled building the tree in this call,
+	 *  0 if the tree was kept or built by another call.
+	 */
+	public ShortestPathTree tree(List<Coordinate> sources, int[] settled)
+	{
+		settled[0]=0;
+		SnapshotPathFinder finder;
+		long version;
+		int[] cells;
+		List<Integer> key=new ArrayList<Integer>();
+		CompletableFuture<ShortestPathTree> future;
+		SearchWorkspace workspace;
+		synchronized(this)
+		{
+			if(this.finder==null || map.getVersion()!=this.version)
+			{
+				//trees of an older version of the map can never be used again, builds running on it finish for their callers only
+				trees.clear();
+				building.clear();
+				workspaces.clear();
+				usedBytes=0;
+				this.version=map.getVersion();
+				this.finder=new SnapshotPathFinder(map.snapshot());
+			}
+			finder=this.finder;
+			version=this.version;
+			cells=finder.indices(sources);
+			Arrays.sort(cells);
+			for(int i=0;i<cells.length;++i)
+				if(i==0 || cells[i]!=cells[i-1])
+					key.add(cells[i]);
+			ShortestPathTree tree=trees.get(key);
+			if(tree!=null)
+			{
+				hits++;
+				return tree;
+			}
+			future=building.get(key);
+			if(future!=null)
+			{
+				hits++;
+				workspace=null;
+			}
+			else
+			{
+				misses++;
+				future=new CompletableFuture<ShortestPathTree>();
+				building.put(key, future);
+				workspace=workspaces.isEmpty() ? finder.newWorkspace() : workspaces.pop();
+			}
+		}
+		if(workspace==null)
+			return await(future);
+
+		ShortestPathTree tree;
+		try
+		{
+			//no targets, so the search settles every reachable cell
+			finder.search(cells, new int[0], workspace);
+			tree=new ShortestPathTree(workspace);
+		}
+		catch(RuntimeException | Error e)
+		{
+			synchronized(this)
+			{
+				building.remove(key, future);
+			}
+			future.completeExceptionally(e);
+			throw e;
+		}
+		synchronized(this)
+		{
+			building.remove(key, future);
+			cellsSettled+=tree.settledCount();
+			if(version==this.version)
+			{
+				workspaces.push(workspace);
+				keep(key, tree);
+			}
+		}
+		future.complete(tree);
+		settled[0]=tree.settledCount();
+		return tree;
+	}
+
+	//tree built by another call
+	private static ShortestPathTree await(CompletableFuture<ShortestPathTree> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch(CompletionException e)
+		{
+			throw new IllegalStateException("Building the shortest path tree failed", e.getCause());
+		}
+	}
+
+	//keeps the tree, evicting the least recently used trees to stay within the budget
+	private void keep(List<Integer> key, ShortestPathTree tree)
+	{
+		Iterator<ShortestPathTree> lru=trees.values().iterator();
+		while(usedBytes+tree.footprintBytes()>budgetBytes && lru.hasNext())
+		{
+			usedBytes-=lru.next().footprintBytes();
+			lru.remove();
+			evictions++;
+		}
+		//a tree larger than the whole budget is used once and not kept
+		if(usedBytes+tree.footprintBytes()<=budgetBytes)
+		{
+			trees.put(key, tree);
+			usedBytes+=tree.footprintBytes();
+		}
+	}
+
+	public synchronized int size() { return trees.size(); }
+
+	//memory taken by the kept trees, in bytes
+	public synchronized long usedBytes() { return usedBytes; }
+
+	public long budgetBytes() { return budgetBytes; }
+
+	public synchronized long hits() { return hits; }
+
+	public synchronized long misses() { return misses; }
+
+	//trees dropped to stay within the budget
+	public synchronized long evictions() { return evictions; }
+
+	//cells settled building trees so far, by all callers
+	public synchronized long cellsSettled() { return cellsSettled; }
+
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("%d trees in %d/%d bytes: %d hits, %d misses, %d evictions",
+			trees.size(), usedBytes, budgetBytes, hits, misses, evictions);
+	}
+}
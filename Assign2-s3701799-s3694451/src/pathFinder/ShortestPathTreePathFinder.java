@@ -0,0 +1,78 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Path finder that answers each leg from a shared ShortestPathTreeCache.
+ * The first query from a set of origins (or from a waypoint) builds the tree of that source,
+ * later queries from it to any destination only walk parents in the tree.
+ */
+public class ShortestPathTreePathFinder implements PathFinder
+{
+	private final PathMap map;
+	private final ShortestPathTreeCache trees;
+	private int coordinatesExplored=0;
+
+	//constructor with a cache of its own, kept within the given budget in bytes
+	public ShortestPathTreePathFinder(PathMap map, long budgetBytes)
+	{
+		this(map, new ShortestPathTreeCache(map, budgetBytes));
+	}
+
+	//constructor sharing the trees of a cache, for example with other finders on the same map
+	public ShortestPathTreePathFinder(PathMap map, ShortestPathTreeCache trees)
+	{
+		this.map=map;
+		this.trees=trees;
+	}
+
+	public ShortestPathTreeCache trees() { return trees; }
+
+	@Override
+	public List<Coordinate> findPath()
+	{
+		List<List<Coordinate>> legTargets=new ArrayList<List<Coordinate>>();
+		for(Coordinate w : map.waypointCells)
+			legTargets.add(Collections.singletonList(w));
+		legTargets.add(map.destCells);
+
+		List<Coordinate> path=new ArrayList<Coordinate>();
+		List<Coordinate> sources=map.originCells;
+		int[] settled=new int[1];
+		for(List<Coordinate> targets : legTargets)
+		{
+			ShortestPathTree tree=trees.tree(sources, settled);
+			//only the trees built by this query count as explored, not those of other threads sharing the cache
+			coordinatesExplored+=settled[0];
+			int reached=tree.nearest(indices(targets));
+			if(reached==-1)
+				return new ArrayList<Coordinate>();
+			//the first cell of a leg is the last cell of the previous one
+			if(!path.isEmpty())
+				path.remove(path.size()-1);
+			for(int cell : tree.path(reached))
+				path.add(map.cells[cell/map.sizeC][cell%map.sizeC]);
+			sources=Collections.singletonList(path.get(path.size()-1));
+		}
+		return path;
+	}
+
+	//indices of the coordinates that are inside the map
+	private int[] indices(List<Coordinate> coords)
+	{
+		int[] indices=new int[coords.size()];
+		int count=0;
+		for(Coordinate c : coords)
+			if(map.isIn(c))
+				indices[count++]=c.getRow()*map.sizeC+c.getColumn();
+		return Arrays.copyOf(indices, count);
+	}
+
+	@Override
+	public int coordinatesExplored()
+	{
+		return coordinatesExplored;
+	}
+}
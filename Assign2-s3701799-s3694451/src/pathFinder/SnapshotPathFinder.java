@@ -0,0 +1,165 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.MapSnapshot;
+
+/**
+ * Thread-safe, reentrant Dijkstra over an immutable MapSnapshot.
+ * The finder itself holds no per-query state: every call takes its query and the SearchWorkspace
+ * to search in, so any number of threads can share one finder and one snapshot without locks
+ * or copies. When no workspace is given, each thread uses its own.
+ */
+public class SnapshotPathFinder
+{
+	private final MapSnapshot snapshot;
+	//index offsets of the up, down, left and right neighbours of a cell
+	private final int[] neighbourOffsets;
+	private final ThreadLocal<SearchWorkspace> workspaces;
+
+	public SnapshotPathFinder(final MapSnapshot snapshot)
+	{
+		this.snapshot=snapshot;
+		neighbourOffsets=new int[]{-snapshot.sizeC, snapshot.sizeC, -1, 1};
+		workspaces=ThreadLocal.withInitial(() -> new SearchWorkspace(snapshot.size()));
+	}
+
+	public MapSnapshot snapshot() { return snapshot; }
+
+	//a workspace sized for the snapshot, to be used by one thread at a time
+	public SearchWorkspace newWorkspace()
+	{
+		return new SearchWorkspace(snapshot.size());
+	}
+
+	//answers the query in the workspace of the calling thread
+	public PathResult findPath(PathQuery query)
+	{
+		return findPath(query, workspaces.get());
+	}
+
+	/**
+	 * Find a shortest path from the origins through the waypoints, in order, to the nearest destination.
+	 *
+	 * @param query The origins, destinations and waypoints.
+	 * @param workspace Search state for this call, not used by any other thread meanwhile.
+	 * @return The path, its cost and the number of cells explored.
+	 */
+	public PathResult findPath(PathQuery query, SearchWorkspace workspace)
+	{
+		checkWorkspace(workspace);
+		List<Integer> cells=new ArrayList<Integer>();
+		int cost=0, explored=0;
+		int[] sources=indices(query.getOrigins());
+		List<int[]> legTargets=new ArrayList<int[]>();
+		for(Coordinate w : query.getWaypoints())
+			legTargets.add(indices(Collections.singletonList(w)));
+		legTargets.add(indices(query.getDestinations()));
+
+		for(int[] targets : legTargets)
+		{
+			int reached=search(sources, targets, workspace);
+			explored+=workspace.closedCount();
+			if(reached==-1)
+				return new PathResult(Collections.<Coordinate>emptyList(), -1, explored);
+			cost+=workspace.cost(reached);
+			//the first cell of a leg is the last cell of the previous one
+			if(!cells.isEmpty())
+				cells.remove(cells.size()-1);
+			appendPath(workspace, reached, cells);
+			sources=new int[]{reached};
+		}
+
+		List<Coordinate> path=new ArrayList<Coordinate>(cells.size());
+		for(int cell : cells)
+			path.add(snapshot.coordinate(cell));
+		return new PathResult(path, cost, explored);
+	}
+
+	/**
+	 * Dijkstra from the source cells, stopping at the first target cell settled.
+	 * The costs and parents of the search are left in the workspace.
+	 *
+	 * @return The target reached, or -1 if none can be reached.
+	 */
+	public int search(int[] sources, int[] targets, SearchWorkspace workspace)
+	{
+		return search(sources, targets, workspace, false);
+	}
+
+	//search computing costs to the sources instead of from them when reverse is set, see relax()
+	int search(int[] sources, int[] targets, SearchWorkspace workspace, boolean reverse)
+	{
+		checkWorkspace(workspace);
+		workspace.reset();
+		IndexedMinHeap open=workspace.open();
+		for(int t : targets)
+			workspace.markTarget(t);
+		for(int s : sources)
+			if(snapshot.isPassable(s))
+			{
+				workspace.update(s, 0, -1);
+				open.insertOrDecrease(s, 0);
+			}
+
+		while(!open.isEmpty())
+		{
+			int index=open.poll();
+			workspace.close(index);
+			if(workspace.isTarget(index))
+				return index;
+			relax(index, workspace, reverse);
+		}
+		return -1;
+	}
+
+	//relaxes the passable, unclosed neighbours of a settled cell
+	//a reverse search computes costs towards its sources, so a step pays the terrain cost of the cell it leaves
+	void relax(int index, SearchWorkspace workspace, boolean reverse)
+	{
+		int r=index/snapshot.sizeC, c=index%snapshot.sizeC;
+		int curr=workspace.cost(index);
+		int leave=snapshot.terrainCost(index);
+		for(int d=0;d<4;++d)
+		{
+			//no neighbour beyond the edges of the map
+			if((d==0 && r==0) || (d==1 && r==snapshot.sizeR-1) || (d==2 && c==0) || (d==3 && c==snapshot.sizeC-1))
+				continue;
+			int next=index+neighbourOffsets[d];
+			if(!snapshot.isPassable(next) || workspace.isClosed(next))
+				continue;
+			int cost=curr+(reverse ? leave : snapshot.terrainCost(next));
+			if(cost<workspace.cost(next))
+			{
+				workspace.update(next, cost, index);
+				workspace.open().insertOrDecrease(next, cost);
+			}
+		}
+	}
+
+	//adds the cells from the source of the search to the target, following the parents in the workspace
+	void appendPath(SearchWorkspace workspace, int target, List<Integer> cells)
+	{
+		int start=cells.size();
+		for(int curr=target;curr!=-1;curr=workspace.parent(curr))
+			cells.add(curr);
+		Collections.reverse(cells.subList(start, cells.size()));
+	}
+
+	//indices of the coordinates that are inside the snapshot
+	int[] indices(List<Coordinate> coords)
+	{
+		int[] indices=new int[coords.size()];
+		int count=0;
+		for(Coordinate c : coords)
+			if(snapshot.isIn(c.getRow(), c.getColumn()))
+				indices[count++]=snapshot.index(c.getRow(), c.getColumn());
+		return Arrays.copyOf(indices, count);
+	}
+
+	private void checkWorkspace(SearchWorkspace workspace)
+	{
+		if(workspace.size()!=snapshot.size())
+			throw new IllegalArgumentException("Workspace has " + workspace.size() + " cells, snapshot has " + snapshot.size() + ".");
+	}
+}
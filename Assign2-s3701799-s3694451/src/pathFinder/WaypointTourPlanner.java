@@ -0,0 +1,232 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import map.Coordinate;
+import map.MapSnapshot;
+
+/**
+ * Chooses the order to visit the waypoints in, when the order of the waypoint file does not matter.
+ * The leg costs between the origins, every waypoint and the destinations are computed in parallel with
+ * a DistanceMatrix. The cheapest order is then found exactly with Held-Karp dynamic programming for up
+ * to EXACT_LIMIT waypoints, and with a nearest neighbour tour improved by 2-opt and Or-opt moves above that.
+ * Leg costs are not symmetric (a move pays the terrain cost of the cell entered), so every move is
+ * checked against the full tour cost.
+ */
+public class WaypointTourPlanner
+{
+	// largest number of waypoints ordered exactly, Held-Karp takes O(2^n n^2)
+	public static final int EXACT_LIMIT=13;
+	// cost of a leg with no path, large enough to lose against any real tour without overflowing
+	private static final long NO_PATH=Long.MAX_VALUE/4;
+
+	private final MapSnapshot snapshot;
+	private final ForkJoinPool pool;
+
+	//leg costs are computed on the common fork-join pool
+	public WaypointTourPlanner(MapSnapshot snapshot)
+	{
+		this(snapshot, ForkJoinPool.commonPool());
+	}
+
+	public WaypointTourPlanner(MapSnapshot snapshot, ForkJoinPool pool)
+	{
+		this.snapshot=snapshot;
+		this.pool=pool;
+	}
+
+	//the cheapest path from an origin through all the waypoints, in the best order, to a destination
+	public PathResult findPath(PathQuery query)
+	{
+		PathQuery ordered=new PathQuery(query.getOrigins(), query.getDestinations(), order(query));
+		return new SnapshotPathFinder(snapshot).findPath(ordered);
+	}
+
+	/**
+	 * Find the cheapest order to visit the waypoints of the query in.
+	 *
+	 * @return The waypoints in visiting order; the given order if no order gives a path.
+	 */
+	public List<Coordinate> order(PathQuery query)
+	{
+		List<Coordinate> waypoints=query.getWaypoints();
+		int n=waypoints.size();
+		if(n<2)
+			return waypoints;
+
+		//rows are the origins then the waypoints, columns are the waypoints then the destinations
+		List<Coordinate> from=new ArrayList<Coordinate>(query.getOrigins());
+		from.addAll(waypoints);
+		List<Coordinate> to=new ArrayList<Coordinate>(waypoints);
+		to.addAll(query.getDestinations());
+		int[][] costs=new DistanceMatrix(snapshot, pool).compute(from, to);
+
+		int origins=query.getOrigins().size();
+		long[] start=new long[n];
+		long[] end=new long[n];
+		long[][] leg=new long[n][n];
+		Arrays.fill(start, NO_PATH);
+		Arrays.fill(end, NO_PATH);
+		for(int i=0;i<n;++i)
+		{
+			for(int o=0;o<origins;++o)
+				start[i]=Math.min(start[i], legCost(costs[o][i]));
+			for(int d=n;d<to.size();++d)
+				end[i]=Math.min(end[i], legCost(costs[origins+i][d]));
+			for(int j=0;j<n;++j)
+				leg[i][j]=legCost(costs[origins+i][j]);
+		}
+
+		int[] tour=n<=EXACT_LIMIT ? heldKarp(start, leg, end) : improve(nearestNeighbour(start, leg), start, leg, end);
+		if(tour==null || tourCost(tour, start, leg, end)>=NO_PATH)
+			return waypoints;
+		List<Coordinate> ordered=new ArrayList<Coordinate>(n);
+		for(int i : tour)
+			ordered.add(waypoints.get(i));
+		return ordered;
+	}
+
+	private static long legCost(int cost)
+	{
+		return cost==DistanceMatrix.UNREACHABLE ? NO_PATH : cost;
+	}
+
+	//total cost of the tour, capped at NO_PATH after every leg so that legs with no path cannot overflow it
+	private static long tourCost(int[] tour, long[] start, long[][] leg, long[] end)
+	{
+		long cost=Math.min(start[tour[0]]+end[tour[tour.length-1]], NO_PATH);
+		for(int i=1;i<tour.length;++i)
+			cost=Math.min(cost+leg[tour[i-1]][tour[i]], NO_PATH);
+		return cost;
+	}
+
+	//exact order: best[mask][j] is the cheapest way to visit the waypoints in mask, ending at j
+	//returns null if every order has a leg with no path
+	private static int[] heldKarp(long[] start, long[][] leg, long[] end)
+	{
+		int n=start.length;
+		long[][] best=new long[1<<n][n];
+		int[][] previous=new int[1<<n][n];
+		for(long[] row : best)
+			Arrays.fill(row, NO_PATH);
+		for(int j=0;j<n;++j)
+			best[1<<j][j]=start[j];
+		for(int mask=1;mask<(1<<n);++mask)
+			for(int j=0;j<n;++j)
+			{
+				if((mask&(1<<j))==0 || best[mask][j]>=NO_PATH)
+					continue;
+				for(int k=0;k<n;++k)
+				{
+					if((mask&(1<<k))!=0)
+						continue;
+					long cost=best[mask][j]+leg[j][k];
+					if(cost<best[mask|(1<<k)][k])
+					{
+						best[mask|(1<<k)][k]=cost;
+						previous[mask|(1<<k)][k]=j;
+					}
+				}
+			}
+
+		int full=(1<<n)-1;
+		int last=0;
+		for(int j=1;j<n;++j)
+			if(best[full][j]+end[j]<best[full][last]+end[last])
+				last=j;
+		if(best[full][last]+end[last]>=NO_PATH)
+			return null;
+		int[] tour=new int[n];
+		for(int i=n-1, mask=full;i>=0;--i)
+		{
+			tour[i]=last;
+			int prev=previous[mask][last];
+			mask&=~(1<<last);
+			last=prev;
+		}
+		return tour;
+	}
+
+	//greedy tour: always go to the cheapest waypoint not visited yet
+	private static int[] nearestNeighbour(long[] start, long[][] leg)
+	{
+		int n=start.length;
+		boolean[] used=new boolean[n];
+		int[] tour=new int[n];
+		for(int i=0;i<n;++i)
+		{
+			int best=-1;
+			for(int j=0;j<n;++j)
+				if(!used[j] && (best==-1 || (i==0 ? start[j]<start[best] : leg[tour[i-1]][j]<leg[tour[i-1]][best])))
+					best=j;
+			tour[i]=best;
+			used[best]=true;
+		}
+		return tour;
+	}
+
+	//applies improving 2-opt (segment reversal) and Or-opt (moving 1 to 3 waypoints) moves until none is left
+	private static int[] improve(int[] tour, long[] start, long[][] leg, long[] end)
+	{
+		int n=tour.length;
+		long cost=tourCost(tour, start, leg, end);
+		boolean improved=true;
+		while(improved)
+		{
+			improved=false;
+			for(int i=0;i<n-1;++i)
+				for(int j=i+1;j<n;++j)
+				{
+					reverse(tour, i, j);
+					long c=tourCost(tour, start, leg, end);
+					if(c<cost)
+					{
+						cost=c;
+						improved=true;
+					}
+					else
+						reverse(tour, i, j);
+				}
+			for(int length=1;length<=3;++length)
+				for(int i=0;i+length<=n;++i)
+					for(int p=0;p<=n-length;++p)
+					{
+						if(p==i)
+							continue;
+						int[] moved=moveSegment(tour, i, length, p);
+						long c=tourCost(moved, start, leg, end);
+						if(c<cost)
+						{
+							tour=moved;
+							cost=c;
+							improved=true;
+						}
+					}
+		}
+		return tour;
+	}
+
+	private static void reverse(int[] tour, int i, int j)
+	{
+		for(;i<j;++i, --j)
+		{
+			int t=tour[i];
+			tour[i]=tour[j];
+			tour[j]=t;
+		}
+	}
+
+	//the tour with the segment of the given length at i taken out and put back in at position p
+	private static int[] moveSegment(int[] tour, int i, int length, int p)
+	{
+		int[] rest=new int[tour.length-length];
+		for(int k=0, r=0;k<tour.length;++k)
+			if(k<i || k>=i+length)
+				rest[r++]=tour[k];
+		int[] moved=new int[tour.length];
+		System.arraycopy(rest, 0, moved, 0, p);
+		System.arraycopy(tour, i, moved, p, length);
+		System.arraycopy(rest, p, moved, p+length, rest.length-p);
+		return moved;
+	}
+}
@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of AStarPathFinder against DijkstraPathFinder on random maps, and after changes to the map,
+ * which can lower the smallest terrain cost the heuristic is scaled by.
+ */
+public class AStarPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(3);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			AStarPathFinder finder=new AStarPathFinder(map);
+			TestMaps.checkCost("A*", map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("A* after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("AStarPathFinderTest passed");
+	}
+}
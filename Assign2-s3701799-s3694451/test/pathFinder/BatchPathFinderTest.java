@@ -0,0 +1,53 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * A batch of random queries answered by BatchPathFinder on a pool of 4 workers, each result in the
+ * order of its query and as cheap as the path of DijkstraPathFinder for that query alone.
+ */
+public class BatchPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try
+		{
+			Random rnd=new Random(13);
+			for(int trial=0;trial<200;++trial)
+			{
+				PathMap map=TestMaps.random(rnd, 24, true, 20);
+				List<PathQuery> queries=new ArrayList<PathQuery>();
+				for(int i=rnd.nextInt(40);i>=0;--i)
+				{
+					List<Coordinate> origins=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(2));
+					List<Coordinate> dests=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(3));
+					queries.add(new PathQuery(origins, dests, TestMaps.randomCells(rnd, map.sizeR, map.sizeC, rnd.nextInt(3))));
+				}
+				BatchResult batch=new BatchPathFinder(map.snapshot(), pool).findPaths(queries);
+				TestMaps.check(batch.getResults().size()==queries.size(), "batch: "+batch.getResults().size()
+					+" results for "+queries.size()+" queries", map);
+				int found=0;
+				for(int i=0;i<queries.size();++i)
+				{
+					map.originCells=queries.get(i).getOrigins();
+					map.destCells=queries.get(i).getDestinations();
+					map.waypointCells=queries.get(i).getWaypoints();
+					PathResult result=batch.getResults().get(i);
+					TestMaps.checkCost("batch query "+i, map, result.getPath());
+					if(result.isFound())
+						found++;
+				}
+				TestMaps.check(batch.getFoundCount()==found, "batch: found count "+batch.getFoundCount()+", expected "+found, map);
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		System.out.println("BatchPathFinderTest passed");
+	}
+}
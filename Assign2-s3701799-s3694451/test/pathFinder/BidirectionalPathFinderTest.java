@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of BidirectionalPathFinder against DijkstraPathFinder on random maps with several origins
+ * and destinations, where the two searches must meet on a cheapest path, and after changes to the map.
+ */
+public class BidirectionalPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(4);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			BidirectionalPathFinder finder=new BidirectionalPathFinder(map);
+			TestMaps.checkCost("bidirectional Dijkstra", map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("bidirectional Dijkstra after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("BidirectionalPathFinderTest passed");
+	}
+}
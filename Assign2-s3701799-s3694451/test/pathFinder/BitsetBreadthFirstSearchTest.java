@@ -0,0 +1,134 @@
+package pathFinder;
+
+import java.util.*;
+import map.CompactGrid;
+
+/**
+ * Paths of BitsetBreadthFirstSearch against a plain breadth-first search on grids whose rows end inside
+ * a word or on a word boundary, with one search object reused for many queries on its grid. Also
+ * CompactGrid.isUniformCost() against a scan of the terrain costs after random changes.
+ */
+public class BitsetBreadthFirstSearchTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(23);
+		for(int trial=0;trial<300;++trial)
+		{
+			int rows=1+rnd.nextInt(40), cols=Math.max(1, 64*(1+rnd.nextInt(3))+rnd.nextInt(3)-1);
+			CompactGrid grid=new CompactGrid(rows, cols);
+			int density=rnd.nextInt(4);
+			for(int cell=0;cell<rows*cols;++cell)
+				if(rnd.nextInt(10)<density)
+					grid.setPassable(cell, false);
+			BitsetBreadthFirstSearch search=new BitsetBreadthFirstSearch(grid);
+			for(int query=0;query<20;++query)
+			{
+				int[] sources=randomCells(rnd, grid, 1+rnd.nextInt(3));
+				int[] targets=randomCells(rnd, grid, 1+rnd.nextInt(4));
+				checkPath(grid, sources, targets, search.search(sources, targets));
+			}
+			checkUniform(rnd, grid);
+		}
+		System.out.println("BitsetBreadthFirstSearchTest passed");
+	}
+
+	//the path steps over passable cells from a source to the nearest target with the lowest index
+	private static void checkPath(CompactGrid grid, int[] sources, int[] targets, int[] path)
+	{
+		int[] level=levels(grid, sources);
+		int nearest=-1;
+		for(int t : targets)
+			if(level[t]!=-1 && (nearest==-1 || level[t]<level[nearest] || (level[t]==level[nearest] && t<nearest)))
+				nearest=t;
+		String query=grid.sizeR+"x"+grid.sizeC+" from "+Arrays.toString(sources)+" to "+Arrays.toString(targets);
+		if(nearest==-1)
+		{
+			check(path==null, "found a path with no target reachable, "+query);
+			return;
+		}
+		check(path!=null, "found no path, "+query);
+		check(path.length-1==level[nearest], (path.length-1)+" steps, expected "+level[nearest]+", "+query);
+		check(path[path.length-1]==nearest, "path ends at "+path[path.length-1]+", expected "+nearest+", "+query);
+		check(level[path[0]]==0, "path starts at "+path[0]+", not a source, "+query);
+		for(int i=0;i<path.length;++i)
+		{
+			check(grid.isPassable(path[i]), "path crosses impassable "+path[i]+", "+query);
+			if(i>0)
+			{
+				int a=path[i-1], b=path[i];
+				check(Math.abs(a-b)==grid.sizeC || (Math.abs(a-b)==1 && a/grid.sizeC==b/grid.sizeC),
+					"path jumps from "+a+" to "+b+", "+query);
+			}
+		}
+	}
+
+	//steps from the nearest passable source to each cell, -1 if it cannot be reached
+	private static int[] levels(CompactGrid grid, int[] sources)
+	{
+		int[] level=new int[grid.sizeR*grid.sizeC];
+		Arrays.fill(level, -1);
+		int[] queue=new int[level.length];
+		int head=0, tail=0;
+		for(int s : sources)
+			if(grid.isPassable(s) && level[s]==-1)
+			{
+				level[s]=0;
+				queue[tail++]=s;
+			}
+		while(head<tail)
+		{
+			int cell=queue[head++];
+			int r=cell/grid.sizeC, c=cell%grid.sizeC;
+			for(int d=0;d<4;++d)
+			{
+				int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+				if(grid.isPassable(nr, nc) && level[grid.index(nr, nc)]==-1)
+				{
+					level[grid.index(nr, nc)]=level[cell]+1;
+					queue[tail++]=grid.index(nr, nc);
+				}
+			}
+		}
+		return level;
+	}
+
+	//uniform exactly when the passable cells have a single terrain cost, as the grid is changed
+	private static void checkUniform(Random rnd, CompactGrid grid)
+	{
+		for(int change=0;change<50;++change)
+		{
+			int cell=rnd.nextInt(grid.sizeR*grid.sizeC);
+			switch(rnd.nextInt(4))
+			{
+				case 0: grid.setPassable(cell, false); break;
+				case 1: grid.setPassable(cell, true); break;
+				//all cells to one cost other than 1 now and then, which the counts alone cannot answer
+				case 2:
+					int cost=2+rnd.nextInt(2);
+					for(int i=0;i<grid.sizeR*grid.sizeC;++i)
+						if(rnd.nextInt(20)!=0)
+							grid.setTerrainCost(i, cost);
+					break;
+				default: grid.setTerrainCost(cell, 1+rnd.nextInt(3)); break;
+			}
+			int[] range=grid.terrainCostRange();
+			check(grid.isUniformCost()==(range[0]==range[1]), "uniform "+grid.isUniformCost()+", costs from "+range[0]+" to "+range[1]);
+			check(new CompactGrid(grid).isUniformCost()==grid.isUniformCost(), "copy of the grid answers differently");
+		}
+	}
+
+	private static int[] randomCells(Random rnd, CompactGrid grid, int count)
+	{
+		int[] cells=new int[count];
+		for(int i=0;i<count;++i)
+			cells[i]=rnd.nextInt(grid.sizeR*grid.sizeC);
+		return cells;
+	}
+
+	private static void check(boolean condition, String message)
+	{
+		if(!condition)
+			throw new AssertionError(message);
+	}
+}
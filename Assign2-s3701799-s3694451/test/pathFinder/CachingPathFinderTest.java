@@ -0,0 +1,109 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * CachingPathFinder against an LRU model of its cache: random lookups from a few queries must hit,
+ * miss, evict and be invalidated by changes to the map as the model says, and every path returned,
+ * cached or not, must cost as much as the path of DijkstraPathFinder on the map as it is now.
+ * Queries with the same origin and destination sets in another order are the same key.
+ */
+public class CachingPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		checkQueryKeys();
+		checkMode();
+		Random rnd=new Random(17);
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 20, true, 20);
+			List<PathQuery> queries=new ArrayList<PathQuery>();
+			for(int i=1+rnd.nextInt(6);i>0;--i)
+			{
+				List<Coordinate> origins=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(2));
+				List<Coordinate> dests=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(3));
+				queries.add(new PathQuery(origins, dests, TestMaps.randomCells(rnd, map.sizeR, map.sizeC, rnd.nextInt(2))));
+			}
+			int capacity=1+rnd.nextInt(4);
+			CachingPathFinder cache=new CachingPathFinder(map, new DijkstraPathFinder(map), capacity);
+			//access-ordered like the cache, the eldest entry is the least recently used
+			LinkedHashMap<PathQuery, Boolean> model=new LinkedHashMap<PathQuery, Boolean>(16, 0.75f, true);
+			long hits=0, misses=0, evictions=0, invalidations=0;
+			for(int lookup=0;lookup<40;++lookup)
+			{
+				long version=map.getVersion();
+				if(rnd.nextInt(8)==0)
+					TestMaps.change(rnd, map, 1+rnd.nextInt(3), 20);
+				//the changes can all have landed on endpoints and been skipped
+				if(map.getVersion()!=version)
+				{
+					invalidations+=model.size();
+					model.clear();
+				}
+				PathQuery query=queries.get(rnd.nextInt(queries.size()));
+				map.originCells=shuffled(rnd, query.getOrigins());
+				map.destCells=shuffled(rnd, query.getDestinations());
+				map.waypointCells=query.getWaypoints();
+				if(model.get(query)!=null)
+					hits++;
+				else
+				{
+					misses++;
+					model.put(query, true);
+					if(model.size()>capacity)
+					{
+						model.remove(model.keySet().iterator().next());
+						evictions++;
+					}
+				}
+				TestMaps.checkCost("cache", map, cache.findPath());
+				TestMaps.check(cache.hits()==hits && cache.misses()==misses && cache.evictions()==evictions
+					&& cache.invalidations()==invalidations && cache.size()==model.size(),
+					"cache: "+cache+", expected "+hits+" hits, "+misses+" misses, "+evictions+" evictions, "
+					+invalidations+" invalidations", map);
+			}
+		}
+		System.out.println("CachingPathFinderTest passed");
+	}
+
+	//origin and destination sets are compared whatever their order and repeats, waypoints in order
+	private static void checkQueryKeys()
+	{
+		Coordinate a=new Coordinate(0, 1), b=new Coordinate(2, 3), c=new Coordinate(4, 5);
+		PathQuery query=new PathQuery(Arrays.asList(a, b), Arrays.asList(c), Arrays.asList(a, c));
+		PathQuery same=new PathQuery(Arrays.asList(b, a, b), Arrays.asList(c, c), Arrays.asList(a, c));
+		check(query.equals(same) && query.hashCode()==same.hashCode(), "reordered origins are another query");
+		check(!query.equals(new PathQuery(Arrays.asList(a, b), Arrays.asList(c), Arrays.asList(c, a))), "reordered waypoints are the same query");
+		check(!query.equals(new PathQuery(Arrays.asList(a), Arrays.asList(c), Arrays.asList(a, c))), "fewer origins are the same query");
+	}
+
+	//the same query with reordering turned on is not answered from the paths found in file order
+	private static void checkMode()
+	{
+		Random rnd=new Random(1);
+		PathMap map=TestMaps.random(rnd, 10, false, 5);
+		DijkstraPathFinder finder=new DijkstraPathFinder(map);
+		CachingPathFinder cache=new CachingPathFinder(map, finder, 4);
+		cache.findPath();
+		cache.findPath();
+		finder.setReorderWaypoints(true);
+		cache.findPath();
+		check(cache.hits()==1 && cache.misses()==2, "reordering mode not in the key: "+cache);
+	}
+
+	private static List<Coordinate> shuffled(Random rnd, List<Coordinate> cells)
+	{
+		List<Coordinate> copy=new ArrayList<Coordinate>(cells);
+		Collections.shuffle(copy, rnd);
+		return copy;
+	}
+
+	private static void check(boolean condition, String message)
+	{
+		if(!condition)
+			throw new AssertionError(message);
+	}
+}
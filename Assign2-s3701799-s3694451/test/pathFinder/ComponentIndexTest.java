@@ -0,0 +1,100 @@
+package pathFinder;
+
+import java.util.*;
+import map.ComponentIndex;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Components of ComponentIndex against a breadth-first labelling of the map, after single cells are
+ * blocked, which can split a component, and unblocked, which can join several, after batches of changes
+ * too large for the journal, and after the map is initialised again with more cells.
+ */
+public class ComponentIndexTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(22);
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 40, false, 5);
+			check(map);
+			for(int round=0;round<30;++round)
+			{
+				int changes=rnd.nextInt(10)==0 ? 300 : 1+rnd.nextInt(4);
+				for(int i=0;i<changes;++i)
+				{
+					int r=rnd.nextInt(map.sizeR), c=rnd.nextInt(map.sizeC);
+					if(rnd.nextBoolean())
+						map.blockCell(r, c);
+					else
+						map.unblockCell(r, c);
+				}
+				check(map);
+			}
+			int rows=map.sizeR+1+rnd.nextInt(10), cols=map.sizeC+1+rnd.nextInt(10);
+			Set<Coordinate> impassable=new HashSet<Coordinate>();
+			for(int i=rows*cols/4;i>0;--i)
+				impassable.add(new Coordinate(rnd.nextInt(rows), rnd.nextInt(cols)));
+			map.initMap(rows, cols, map.originCells, map.destCells, impassable, new HashMap<Coordinate, Integer>(), new ArrayList<Coordinate>());
+			for(int round=0;round<10;++round)
+			{
+				map.blockCell(rnd.nextInt(rows), rnd.nextInt(cols));
+				check(map);
+			}
+		}
+		System.out.println("ComponentIndexTest passed");
+	}
+
+	//two cells share a component of the index exactly when they share one of the labelling
+	private static void check(PathMap map)
+	{
+		int[] expected=label(map);
+		ComponentIndex index=map.getComponents();
+		Map<Integer, Integer> toIndex=new HashMap<Integer, Integer>(), toExpected=new HashMap<Integer, Integer>();
+		for(int cell=0;cell<expected.length;++cell)
+		{
+			int component=index.component(cell/map.sizeC, cell%map.sizeC);
+			TestMaps.check((component==-1)==(expected[cell]==-1), "components: cell "+cell+" is in component "+component
+				+", passable "+map.getGrid().isPassable(cell), map);
+			if(component==-1)
+				continue;
+			Integer a=toIndex.putIfAbsent(expected[cell], component), b=toExpected.putIfAbsent(component, expected[cell]);
+			TestMaps.check((a==null || a==component) && (b==null || b==expected[cell]),
+				"components: cell "+cell+" joined or split wrongly", map);
+		}
+	}
+
+	//component of each cell by breadth-first search, -1 for impassable cells
+	private static int[] label(PathMap map)
+	{
+		int[] label=new int[map.sizeR*map.sizeC];
+		Arrays.fill(label, -1);
+		int[] queue=new int[label.length];
+		int next=0;
+		for(int start=0;start<label.length;++start)
+		{
+			if(label[start]!=-1 || !map.getGrid().isPassable(start))
+				continue;
+			int head=0, tail=0;
+			label[start]=next;
+			queue[tail++]=start;
+			while(head<tail)
+			{
+				int cell=queue[head++];
+				int r=cell/map.sizeC, c=cell%map.sizeC;
+				for(int d=0;d<4;++d)
+				{
+					int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+					if(map.isPassable(nr, nc) && label[nr*map.sizeC+nc]==-1)
+					{
+						label[nr*map.sizeC+nc]=next;
+						queue[tail++]=nr*map.sizeC+nc;
+					}
+				}
+			}
+			next++;
+		}
+		return label;
+	}
+}
@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of ContractionHierarchyPathFinder against DijkstraPathFinder on random maps,
+ * and after cells of the map are blocked, unblocked and given new terrain costs.
+ */
+public class ContractionHierarchyPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(17);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 16, true, 20);
+			ContractionHierarchyPathFinder finder=new ContractionHierarchyPathFinder(map);
+			TestMaps.checkCost("contraction hierarchy", map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("contraction hierarchy after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("ContractionHierarchyPathFinderTest passed");
+	}
+}
@@ -0,0 +1,41 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import map.PathMap;
+
+/**
+ * Paths of DeltaSteppingPathFinder against DijkstraPathFinder on random maps, with the tuned
+ * bucket width and with fixed ones, on a pool of 4 workers, and again after changes to the map.
+ */
+public class DeltaSteppingPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try
+		{
+			Random rnd=new Random(24);
+			for(int trial=0;trial<1000;++trial)
+			{
+				PathMap map=TestMaps.random(rnd, 24, true, 20);
+				DeltaSteppingPathFinder finder=new DeltaSteppingPathFinder(map, pool);
+				TestMaps.checkCost("delta-stepping", map, finder.findPath());
+				int delta=1+rnd.nextInt(25);
+				finder.setDelta(delta);
+				TestMaps.checkCost("delta-stepping with delta "+delta, map, finder.findPath());
+				//the finder keeps its arrays from the searches before, on the same map and on the changed one
+				for(int round=0;round<3;++round)
+				{
+					TestMaps.change(rnd, map, 1+rnd.nextInt(5), 20);
+					TestMaps.checkCost("delta-stepping after changes", map, finder.findPath());
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		System.out.println("DeltaSteppingPathFinderTest passed");
+	}
+}
@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of DialPathFinder against DijkstraPathFinder on random maps, and after changes to the map,
+ * which can raise the largest terrain cost and so the number of buckets.
+ */
+public class DialPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(2);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			DialPathFinder finder=new DialPathFinder(map);
+			TestMaps.checkCost("Dial", map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("Dial after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("DialPathFinderTest passed");
+	}
+}
@@ -0,0 +1,80 @@
+package pathFinder;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Memory allocated by warmed-up DijkstraPathFinder queries, measured per thread with
+ * com.sun.management.ThreadMXBean. Once the pooled workspace exists, a query should only allocate
+ * its result path: the bound is a fixed allowance plus 32 bytes per cell of the path, far below
+ * the 4 bytes per cell of the map a per-query search array would take. Checked on a map with
+ * terrain costs (indexed heap) and on one without (breadth-first search on bitsets).
+ */
+public class DijkstraPathFinderAllocationTest
+{
+	private static final int SIZE=500;
+	private static final int WARM_UP=20, QUERIES=20;
+	private static final long ALLOWANCE=4096, BYTES_PER_PATH_CELL=32;
+
+	public static void main(String[] args)
+	{
+		if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+		{
+			System.out.println("DijkstraPathFinderAllocationTest skipped, allocation counting is not supported by this JVM");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported())
+		{
+			System.out.println("DijkstraPathFinderAllocationTest skipped, allocation counting is not supported by this JVM");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		check(threads, "terrain costs", map(new Random(11), true));
+		check(threads, "uniform costs", map(new Random(11), false));
+		System.out.println("DijkstraPathFinderAllocationTest passed");
+	}
+
+	private static void check(com.sun.management.ThreadMXBean threads, String name, PathMap map)
+	{
+		DijkstraPathFinder finder=new DijkstraPathFinder(map);
+		int length=0;
+		for(int i=0;i<WARM_UP;++i)
+			length=finder.findPath().size();
+		TestMaps.check(length>0, name+": no path", map);
+
+		long thread=Thread.currentThread().getId();
+		long before=threads.getThreadAllocatedBytes(thread);
+		for(int i=0;i<QUERIES;++i)
+			finder.findPath();
+		long perQuery=(threads.getThreadAllocatedBytes(thread)-before)/QUERIES;
+		long bound=ALLOWANCE+BYTES_PER_PATH_CELL*length;
+		TestMaps.check(perQuery<=bound, name+": a query allocates "+perQuery+" bytes for a path of "+length
+			+" cells, expected at most "+bound, map);
+		System.out.println(name+": "+perQuery+" bytes per query for a path of "+length+" cells");
+	}
+
+	//corner to corner on a SIZE x SIZE map with 20% of the cells impassable
+	private static PathMap map(Random rnd, boolean costs)
+	{
+		Set<Coordinate> impassable=new HashSet<Coordinate>();
+		Map<Coordinate, Integer> terrain=new HashMap<Coordinate, Integer>();
+		for(int r=0;r<SIZE;++r)
+			for(int c=0;c<SIZE;++c)
+			{
+				if((r==0 && c==0) || (r==SIZE-1 && c==SIZE-1))
+					continue;
+				if(rnd.nextInt(5)==0)
+					impassable.add(new Coordinate(r, c));
+				else if(costs && rnd.nextInt(3)==0)
+					terrain.put(new Coordinate(r, c), 1+rnd.nextInt(5));
+			}
+		PathMap map=new PathMap();
+		map.initMap(SIZE, SIZE, Collections.singletonList(new Coordinate(0, 0)), Collections.singletonList(new Coordinate(SIZE-1, SIZE-1)),
+			impassable, terrain, new ArrayList<Coordinate>());
+		map.isVisu=false;
+		return map;
+	}
+}
@@ -0,0 +1,48 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * With several destinations, DijkstraPathFinder stops at the first one it settles: its path costs
+ * as much as the path to the nearest destination searched alone, and it explores no more cells than
+ * the search for any one reachable destination alone, which stops at the same cell or later.
+ */
+public class DijkstraPathFinderEarlyExitTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(8);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, false, 20);
+			List<Coordinate> dests=new ArrayList<Coordinate>(map.destCells);
+			for(int extra=rnd.nextInt(6);extra>0;--extra)
+				dests.add(new Coordinate(rnd.nextInt(map.sizeR), rnd.nextInt(map.sizeC)));
+			map.destCells=dests;
+			DijkstraPathFinder finder=new DijkstraPathFinder(map);
+			List<Coordinate> path=finder.findPath();
+			int cost=TestMaps.cost(map, path);
+			int explored=finder.coordinatesExplored();
+			TestMaps.checkPath("Dijkstra", map, path);
+
+			int nearest=-1;
+			for(Coordinate dest : dests)
+			{
+				map.destCells=Collections.singletonList(dest);
+				DijkstraPathFinder alone=new DijkstraPathFinder(map);
+				int aloneCost=TestMaps.cost(map, alone.findPath());
+				map.destCells=dests;
+				if(aloneCost==-1)
+					continue;
+				if(nearest==-1 || aloneCost<nearest)
+					nearest=aloneCost;
+				TestMaps.check(explored<=alone.coordinatesExplored(), "Dijkstra: explored "+explored
+					+" cells, the search for "+dest+" alone explored "+alone.coordinatesExplored(), map);
+			}
+			TestMaps.check(cost==nearest, "Dijkstra: path costs "+cost+", the nearest destination costs "+nearest, map);
+		}
+		System.out.println("DijkstraPathFinderEarlyExitTest passed");
+	}
+}
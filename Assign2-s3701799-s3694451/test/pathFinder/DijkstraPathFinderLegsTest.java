@@ -0,0 +1,80 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Tours with up to 6 waypoints, whose legs DijkstraPathFinder searches in parallel and joins in order,
+ * against the legs searched one at a time by separate finders: the tour must cost the sum of the legs
+ * and, when it has a path, explore as many cells. The tour is also searched by 4 threads at once on the same map, which
+ * share the workspace pool of the map.
+ */
+public class DijkstraPathFinderLegsTest
+{
+	public static void main(String[] args) throws Exception
+	{
+		ExecutorService threads=Executors.newFixedThreadPool(4);
+		try
+		{
+			Random rnd=new Random(16);
+			for(int trial=0;trial<300;++trial)
+			{
+				final PathMap map=TestMaps.random(rnd, 30, false, 20);
+				map.waypointCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(6));
+				int[] expected=legsOneAtATime(map);
+
+				DijkstraPathFinder finder=new DijkstraPathFinder(map);
+				List<Coordinate> path=finder.findPath();
+				TestMaps.checkPath("parallel legs", map, path);
+				TestMaps.check(TestMaps.cost(map, path)==expected[0], "parallel legs: tour costs "+TestMaps.cost(map, path)
+					+", the legs "+expected[0], map);
+				//a tour with no path is rejected before any leg is searched
+				TestMaps.check(expected[0]==-1 || finder.coordinatesExplored()==expected[1], "parallel legs: explored "
+					+finder.coordinatesExplored()+" cells, the legs "+expected[1], map);
+
+				List<Future<List<Coordinate>>> tours=new ArrayList<Future<List<Coordinate>>>();
+				for(int i=0;i<4;++i)
+					tours.add(threads.submit(() -> new DijkstraPathFinder(map).findPath()));
+				for(Future<List<Coordinate>> tour : tours)
+					TestMaps.check(tour.get().equals(path), "parallel legs: another thread found "+tour.get()+", not "+path, map);
+			}
+		}
+		finally
+		{
+			threads.shutdown();
+		}
+		System.out.println("DijkstraPathFinderLegsTest passed");
+	}
+
+	//cost of the tour and cells explored, searching each leg with a finder of its own; cost -1 if a leg has no path
+	private static int[] legsOneAtATime(PathMap map)
+	{
+		List<Coordinate> origins=map.originCells, dests=map.destCells, waypoints=map.waypointCells;
+		List<List<Coordinate>> targets=new ArrayList<List<Coordinate>>();
+		for(Coordinate w : waypoints)
+			targets.add(Collections.singletonList(w));
+		targets.add(dests);
+		int cost=0, explored=0;
+		List<Coordinate> from=origins;
+		map.waypointCells=new ArrayList<Coordinate>();
+		for(List<Coordinate> to : targets)
+		{
+			map.originCells=from;
+			map.destCells=to;
+			DijkstraPathFinder leg=new DijkstraPathFinder(map);
+			int legCost=TestMaps.cost(map, leg.findPath());
+			explored+=leg.coordinatesExplored();
+			if(legCost==-1 || cost==-1)
+				cost=-1;
+			else
+				cost+=legCost;
+			from=to;
+		}
+		map.originCells=origins;
+		map.destCells=dests;
+		map.waypointCells=waypoints;
+		return new int[]{cost, explored};
+	}
+}
@@ -0,0 +1,129 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Paths of DijkstraPathFinder against a plain Dijkstra written here on random maps with terrain costs
+ * and waypoints, with some origins, destinations and waypoints blocked or walled in, and after changes to the map.
+ */
+public class DijkstraPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(1);
+		for(int trial=0;trial<2000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 20, true, 20);
+			if(rnd.nextInt(4)==0)
+				blockEndpoint(rnd, map);
+			if(rnd.nextInt(4)==0)
+				wallIn(rnd, map);
+			DijkstraPathFinder finder=new DijkstraPathFinder(map);
+			check(map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				check(map, finder.findPath());
+			}
+		}
+		System.out.println("DijkstraPathFinderTest passed");
+	}
+
+	private static void check(PathMap map, List<Coordinate> path)
+	{
+		TestMaps.checkPath("Dijkstra", map, path);
+		int expected=tourCost(map);
+		int actual=TestMaps.cost(map, path);
+		TestMaps.check(actual==expected, "Dijkstra: path costs "+actual+", expected "+expected, map);
+	}
+
+	//blocks an origin, a destination or a waypoint
+	private static void blockEndpoint(Random rnd, PathMap map)
+	{
+		List<Coordinate> cells=new ArrayList<Coordinate>(map.originCells);
+		cells.addAll(map.destCells);
+		cells.addAll(map.waypointCells);
+		Coordinate cell=cells.get(rnd.nextInt(cells.size()));
+		map.blockCell(cell.getRow(), cell.getColumn());
+	}
+
+	//blocks the neighbours of a destination or a waypoint, so that it cannot be reached
+	private static void wallIn(Random rnd, PathMap map)
+	{
+		List<Coordinate> cells=new ArrayList<Coordinate>(map.destCells);
+		cells.addAll(map.waypointCells);
+		Coordinate cell=cells.get(rnd.nextInt(cells.size()));
+		for(int d=0;d<4;++d)
+		{
+			int r=cell.getRow()+GridPathFinder.DR[d], c=cell.getColumn()+GridPathFinder.DC[d];
+			if(map.isIn(r, c))
+				map.blockCell(r, c);
+		}
+	}
+
+	//cost of the cheapest path from an origin through the waypoints in order to a destination, -1 if there is none
+	private static int tourCost(PathMap map)
+	{
+		List<Coordinate> from=map.originCells;
+		int total=0;
+		List<List<Coordinate>> legs=new ArrayList<List<Coordinate>>();
+		for(Coordinate w : map.waypointCells)
+			legs.add(Collections.singletonList(w));
+		legs.add(map.destCells);
+		for(List<Coordinate> to : legs)
+		{
+			int cost=legCost(map, from, to);
+			if(cost<0)
+				return -1;
+			total+=cost;
+			from=to;
+		}
+		return total;
+	}
+
+	//textbook Dijkstra with a priority queue of {cost, cell} entries, stale entries skipped when polled
+	private static int legCost(PathMap map, List<Coordinate> from, List<Coordinate> to)
+	{
+		int[] dist=new int[map.sizeR*map.sizeC];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		PriorityQueue<int[]> queue=new PriorityQueue<int[]>((a, b) -> Integer.compare(a[0], b[0]));
+		for(Coordinate s : from)
+			if(map.isPassable(s.getRow(), s.getColumn()))
+			{
+				dist[s.getRow()*map.sizeC+s.getColumn()]=0;
+				queue.add(new int[]{0, s.getRow()*map.sizeC+s.getColumn()});
+			}
+		while(!queue.isEmpty())
+		{
+			int[] entry=queue.poll();
+			int cell=entry[1];
+			if(entry[0]>dist[cell])
+				continue;
+			int r=cell/map.sizeC, c=cell%map.sizeC;
+			for(int d=0;d<4;++d)
+			{
+				int nr=r+GridPathFinder.DR[d], nc=c+GridPathFinder.DC[d];
+				if(!map.isPassable(nr, nc))
+					continue;
+				int next=nr*map.sizeC+nc;
+				int cost=dist[cell]+map.getGrid().terrainCost(next);
+				if(cost<dist[next])
+				{
+					dist[next]=cost;
+					queue.add(new int[]{cost, next});
+				}
+			}
+		}
+		int best=-1;
+		for(Coordinate t : to)
+			if(map.isPassable(t.getRow(), t.getColumn()) && dist[t.getRow()*map.sizeC+t.getColumn()]!=Integer.MAX_VALUE)
+			{
+				int cost=dist[t.getRow()*map.sizeC+t.getColumn()];
+				if(best==-1 || cost<best)
+					best=cost;
+			}
+		return best;
+	}
+}
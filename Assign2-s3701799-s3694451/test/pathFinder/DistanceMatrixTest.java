@@ -0,0 +1,46 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Every entry of a DistanceMatrix against the cost of the path of DijkstraPathFinder between its
+ * origin and destination alone, with more origins than destinations and the other way round, so that
+ * the searches run both forwards and backwards, on a pool of 4 workers.
+ */
+public class DistanceMatrixTest
+{
+	public static void main(String[] args)
+	{
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try
+		{
+			Random rnd=new Random(14);
+			for(int trial=0;trial<300;++trial)
+			{
+				PathMap map=TestMaps.random(rnd, 24, false, 20);
+				List<Coordinate> origins=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(6));
+				List<Coordinate> dests=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(6));
+				int[][] matrix=new DistanceMatrix(map.snapshot(), pool).compute(origins, dests);
+				TestMaps.check(matrix.length==origins.size(), "matrix: "+matrix.length+" rows for "+origins.size()+" origins", map);
+				for(int i=0;i<origins.size();++i)
+					for(int j=0;j<dests.size();++j)
+					{
+						map.originCells=Collections.singletonList(origins.get(i));
+						map.destCells=Collections.singletonList(dests.get(j));
+						int expected=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+						if(expected==-1)
+							expected=DistanceMatrix.UNREACHABLE;
+						TestMaps.check(matrix[i][j]==expected, "matrix: entry "+matrix[i][j]+", expected "+expected, map);
+					}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		System.out.println("DistanceMatrixTest passed");
+	}
+}
@@ -0,0 +1,66 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Paths of FlowFieldPathFinder against DijkstraPathFinder on random maps, on a pool of 4 workers, for
+ * several origins towards the same destinations, which share one field, and after changes to the map,
+ * which must drop the fields. The cost of a field at a cell is checked against Dijkstra from that cell.
+ */
+public class FlowFieldPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		ForkJoinPool pool=new ForkJoinPool(4);
+		try
+		{
+			Random rnd=new Random(21);
+			for(int trial=0;trial<500;++trial)
+			{
+				PathMap map=TestMaps.random(rnd, 24, true, 20);
+				FlowFieldPathFinder finder=new FlowFieldPathFinder(map, pool);
+				for(int round=0;round<3;++round)
+				{
+					if(round>0)
+						TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+					TestMaps.checkCost("flow field", map, finder.findPath());
+					List<Coordinate> origins=map.originCells;
+					map.originCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(2));
+					TestMaps.checkCost("flow field from other origins", map, finder.findPath());
+					map.originCells=origins;
+				}
+				checkDistances(rnd, map);
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		System.out.println("FlowFieldPathFinderTest passed");
+	}
+
+	//the cost of the field of the destinations at a cell is the cost of the path from it
+	private static void checkDistances(Random rnd, PathMap map)
+	{
+		int[] targets=new int[map.destCells.size()];
+		for(int i=0;i<targets.length;++i)
+			targets[i]=map.getGrid().index(map.destCells.get(i).getRow(), map.destCells.get(i).getColumn());
+		FlowField field=FlowField.build(map.snapshot(), targets);
+		List<Coordinate> origins=map.originCells, waypoints=map.waypointCells;
+		map.waypointCells=new ArrayList<Coordinate>();
+		for(int check=0;check<10;++check)
+		{
+			int cell=rnd.nextInt(map.sizeR*map.sizeC);
+			map.originCells=Collections.singletonList(new Coordinate(cell/map.sizeC, cell%map.sizeC));
+			int cost=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+			int expected=cost==-1 ? FlowField.UNREACHABLE : cost;
+			TestMaps.check(field.distance(cell)==expected, "flow field: cost "+field.distance(cell)+" at "+map.originCells
+				+", expected "+expected, map);
+		}
+		map.originCells=origins;
+		map.waypointCells=waypoints;
+	}
+}
@@ -0,0 +1,35 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of HashDistributedAStarPathFinder against DijkstraPathFinder on random maps, with 1 to 4
+ * workers, each finder answering several queries on the same workers as the map changes.
+ */
+public class HashDistributedAStarPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(25);
+		for(int trial=0;trial<500;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			HashDistributedAStarPathFinder finder=new HashDistributedAStarPathFinder(map, 1+rnd.nextInt(4));
+			try
+			{
+				TestMaps.checkCost("HDA*", map, finder.findPath());
+				for(int round=0;round<3;++round)
+				{
+					TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+					TestMaps.checkCost("HDA* after changes", map, finder.findPath());
+				}
+			}
+			finally
+			{
+				finder.shutdown();
+			}
+		}
+		System.out.println("HashDistributedAStarPathFinderTest passed");
+	}
+}
@@ -0,0 +1,41 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Paths of HierarchicalPathFinder on random maps, and after cells of the map are blocked, unblocked
+ * and given new terrain costs. With an entrance width of 1 they must cost as much as those of
+ * DijkstraPathFinder, with the default settings they must be paths and not be cheaper.
+ */
+public class HierarchicalPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(17);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 40, true, 20);
+			HierarchicalPathFinder exact=new HierarchicalPathFinder(map, new ClusterAbstraction(map, 1+rnd.nextInt(8), 1));
+			HierarchicalPathFinder approximate=new HierarchicalPathFinder(map);
+			check(map, exact, approximate);
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(20), 20);
+				check(map, exact, approximate);
+			}
+		}
+		System.out.println("HierarchicalPathFinderTest passed");
+	}
+
+	private static void check(PathMap map, HierarchicalPathFinder exact, HierarchicalPathFinder approximate)
+	{
+		TestMaps.checkCost("exact HPA*", map, exact.findPath());
+		List<Coordinate> path=approximate.findPath();
+		TestMaps.checkPath("HPA*", map, path);
+		int expected=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+		TestMaps.check((expected==-1)==path.isEmpty() && TestMaps.cost(map, path)>=expected,
+			"HPA*: path costs "+TestMaps.cost(map, path)+", expected at least "+expected, map);
+	}
+}
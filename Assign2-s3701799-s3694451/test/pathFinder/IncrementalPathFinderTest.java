@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of IncrementalPathFinder (LPA*) against DijkstraPathFinder on random maps, and after cells
+ * of the map are blocked, unblocked and given new terrain costs, so that the legs are repaired.
+ */
+public class IncrementalPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(20);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 16, true, 20);
+			IncrementalPathFinder finder=new IncrementalPathFinder(map);
+			TestMaps.checkCost("LPA*", map, finder.findPath());
+			for(int round=0;round<5;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("LPA* after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("IncrementalPathFinderTest passed");
+	}
+}
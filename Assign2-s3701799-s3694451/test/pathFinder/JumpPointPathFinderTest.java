@@ -0,0 +1,28 @@
+package pathFinder;
+
+import java.util.*;
+import map.PathMap;
+
+/**
+ * Paths of JumpPointPathFinder against DijkstraPathFinder on random maps with and without terrain costs,
+ * and after changes to the map, which must refresh the jump flags kept per map version.
+ */
+public class JumpPointPathFinderTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(5);
+		for(int trial=0;trial<1000;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			JumpPointPathFinder finder=new JumpPointPathFinder(map);
+			TestMaps.checkCost("JPS", map, finder.findPath());
+			for(int round=0;round<3;++round)
+			{
+				TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				TestMaps.checkCost("JPS after changes", map, finder.findPath());
+			}
+		}
+		System.out.println("JumpPointPathFinderTest passed");
+	}
+}
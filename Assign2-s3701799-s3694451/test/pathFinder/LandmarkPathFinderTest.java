@@ -0,0 +1,121 @@
+package pathFinder;
+
+import java.io.*;
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Paths of LandmarkPathFinder against DijkstraPathFinder on random maps, with landmarks built, saved
+ * and loaded again, and after changes to the map, when the landmarks no longer apply. The landmark
+ * distances and lower bounds are checked against Dijkstra, and loading must reject the landmarks
+ * of a map of another size or with a changed cell.
+ */
+public class LandmarkPathFinderTest
+{
+	public static void main(String[] args) throws IOException
+	{
+		Random rnd=new Random(19);
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 20, true, 20);
+			LandmarkSet.Selection selection=LandmarkSet.Selection.values()[rnd.nextInt(2)];
+			LandmarkSet landmarks=LandmarkSet.build(map, 1+rnd.nextInt(8), selection);
+			TestMaps.checkCost("ALT", map, new LandmarkPathFinder(map, landmarks).findPath());
+			checkBounds(rnd, map, landmarks);
+
+			ByteArrayOutputStream saved=new ByteArrayOutputStream();
+			landmarks.save(saved);
+			LandmarkSet loaded=LandmarkSet.load(new ByteArrayInputStream(saved.toByteArray()), map);
+			TestMaps.check(loaded.isValidFor(map) && loaded.count()==landmarks.count(), "ALT: loaded set does not match", map);
+			for(int i=0;i<loaded.count();++i)
+			{
+				TestMaps.check(loaded.landmark(i)==landmarks.landmark(i), "ALT: loaded landmark "+i+" moved", map);
+				for(int cell=0;cell<map.sizeR*map.sizeC;++cell)
+					TestMaps.check(loaded.distance(i, cell)==landmarks.distance(i, cell), "ALT: loaded distance changed", map);
+			}
+			TestMaps.checkCost("ALT with loaded landmarks", map, new LandmarkPathFinder(map, loaded).findPath());
+
+			PathMap taller=new PathMap();
+			taller.initMap(map.sizeR+1, map.sizeC, map.originCells, map.destCells, new HashSet<Coordinate>(),
+				new HashMap<Coordinate, Integer>(), new ArrayList<Coordinate>());
+			checkRejected(saved.toByteArray(), taller, map, "a map of another size");
+			if(changeOneCell(rnd, map))
+			{
+				TestMaps.check(!landmarks.isValidFor(map), "ALT: landmarks still valid after a change", map);
+				TestMaps.checkCost("ALT after changes", map, new LandmarkPathFinder(map, landmarks).findPath());
+				checkRejected(saved.toByteArray(), map, map, "a changed map");
+			}
+		}
+
+		File file=File.createTempFile("landmarks", ".alt");
+		try
+		{
+			PathMap map=TestMaps.random(rnd, 20, false, 20);
+			LandmarkSet.build(map, 4, LandmarkSet.Selection.AVOID).save(file);
+			TestMaps.check(LandmarkSet.load(file, map).isValidFor(map), "ALT: set loaded from a file is not valid", map);
+		}
+		finally
+		{
+			file.delete();
+		}
+		System.out.println("LandmarkPathFinderTest passed");
+	}
+
+	//distances from the landmarks are the costs of Dijkstra, and the bounds never overestimate
+	private static void checkBounds(Random rnd, PathMap map, LandmarkSet landmarks)
+	{
+		List<Coordinate> origins=map.originCells, dests=map.destCells, waypoints=map.waypointCells;
+		map.waypointCells=new ArrayList<Coordinate>();
+		for(int check=0;check<10;++check)
+		{
+			int from=rnd.nextInt(map.sizeR*map.sizeC), to=rnd.nextInt(map.sizeR*map.sizeC);
+			if(!map.getGrid().isPassable(from) || !map.getGrid().isPassable(to))
+				continue;
+			map.originCells=Collections.singletonList(map.cells[from/map.sizeC][from%map.sizeC]);
+			map.destCells=Collections.singletonList(map.cells[to/map.sizeC][to%map.sizeC]);
+			int cost=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+			if(cost==-1)
+				continue;
+			int bound=landmarks.lowerBound(from, to, map.getGrid().terrainCost(from), map.getGrid().terrainCost(to));
+			TestMaps.check(bound<=cost, "ALT: bound "+bound+" above the cost "+cost, map);
+			int i=rnd.nextInt(landmarks.count());
+			map.originCells=Collections.singletonList(map.cells[landmarks.landmark(i)/map.sizeC][landmarks.landmark(i)%map.sizeC]);
+			int fromLandmark=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+			int distance=landmarks.distance(i, to);
+			TestMaps.check(distance==(fromLandmark==-1 ? LandmarkSet.UNREACHABLE : fromLandmark),
+				"ALT: landmark distance "+distance+", Dijkstra "+fromLandmark, map);
+		}
+		map.originCells=origins;
+		map.destCells=dests;
+		map.waypointCells=waypoints;
+	}
+
+	//raises the terrain cost of a passable cell that is not an endpoint, false if there is none
+	private static boolean changeOneCell(Random rnd, PathMap map)
+	{
+		for(int attempt=0;attempt<50;++attempt)
+		{
+			int r=rnd.nextInt(map.sizeR), c=rnd.nextInt(map.sizeC);
+			Coordinate cell=new Coordinate(r, c);
+			if(!map.isPassable(r, c) || map.originCells.contains(cell) || map.destCells.contains(cell) || map.waypointCells.contains(cell))
+				continue;
+			map.setTerrainCost(r, c, map.getGrid().terrainCost(map.getGrid().index(r, c))+1);
+			return true;
+		}
+		return false;
+	}
+
+	private static void checkRejected(byte[] saved, PathMap other, PathMap map, String what)
+	{
+		try
+		{
+			LandmarkSet.load(new ByteArrayInputStream(saved), other);
+		}
+		catch(IOException e)
+		{
+			return;
+		}
+		TestMaps.check(false, "ALT: landmarks loaded for "+what, map);
+	}
+}
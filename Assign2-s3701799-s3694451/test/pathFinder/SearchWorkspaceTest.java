@@ -0,0 +1,84 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * A SearchWorkspace forgets its cells on reset and is pooled per map, and one workspace reused by a
+ * SnapshotPathFinder for many queries finds paths as cheap as DijkstraPathFinder, on the map as it was
+ * when the snapshot was taken.
+ */
+public class SearchWorkspaceTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(9);
+		checkReset();
+		checkPool();
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, true, 20);
+			SnapshotPathFinder finder=new SnapshotPathFinder(map.snapshot());
+			SearchWorkspace workspace=finder.newWorkspace();
+			for(int query=0;query<10;++query)
+			{
+				map.originCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(2));
+				map.destCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(3));
+				map.waypointCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, rnd.nextInt(3));
+				PathResult result=finder.findPath(PathQuery.of(map), workspace);
+				TestMaps.checkCost("snapshot finder", map, result.getPath());
+				TestMaps.check(result.getCost()==TestMaps.cost(map, result.getPath()),
+					"snapshot finder: reported cost "+result.getCost()+" of a path costing "+TestMaps.cost(map, result.getPath()), map);
+			}
+			//the snapshot does not see later changes
+			int before=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+			TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+			int after=finder.findPath(PathQuery.of(map), workspace).getCost();
+			TestMaps.check(after==before, "snapshot finder: cost "+after+" after changes, "+before+" on the snapshot", map);
+		}
+		System.out.println("SearchWorkspaceTest passed");
+	}
+
+	//cells updated before a reset read as unreached after it
+	private static void checkReset()
+	{
+		SearchWorkspace workspace=new SearchWorkspace(16);
+		workspace.update(5, 3, -1);
+		workspace.close(5);
+		workspace.markTarget(7);
+		check(workspace.isReached(5) && workspace.cost(5)==3 && workspace.closedCount()==1, "update not kept");
+		workspace.reset();
+		check(!workspace.isReached(5) && workspace.cost(5)==Integer.MAX_VALUE && !workspace.isClosed(5)
+			&& !workspace.isTarget(7) && workspace.closedCount()==0, "reset kept a cell");
+	}
+
+	//a released workspace is acquired again for the same map, but not once the map has another size
+	private static void checkPool()
+	{
+		PathMap map=new PathMap();
+		map.initMap(4, 5, cells(0, 0), cells(3, 4), new HashSet<Coordinate>(), new HashMap<Coordinate, Integer>(), new ArrayList<Coordinate>());
+		SearchWorkspace first=SearchWorkspace.acquire(map);
+		first.update(3, 1, -1);
+		SearchWorkspace.release(map, first);
+		SearchWorkspace second=SearchWorkspace.acquire(map);
+		check(second==first, "released workspace not pooled");
+		check(!second.isReached(3), "pooled workspace not reset");
+		SearchWorkspace.release(map, second);
+		map.initMap(6, 6, cells(0, 0), cells(5, 5), new HashSet<Coordinate>(), new HashMap<Coordinate, Integer>(), new ArrayList<Coordinate>());
+		SearchWorkspace third=SearchWorkspace.acquire(map);
+		check(third.size()==36, "pooled workspace has "+third.size()+" cells, the map 36");
+		SearchWorkspace.release(map, third);
+	}
+
+	private static List<Coordinate> cells(int r, int c)
+	{
+		return new ArrayList<Coordinate>(Collections.singletonList(new Coordinate(r, c)));
+	}
+
+	private static void check(boolean condition, String message)
+	{
+		if(!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,77 @@
+package pathFinder;
+
+import java.util.*;
+import java.util.concurrent.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Paths of ShortestPathTreePathFinder against DijkstraPathFinder for many destinations from the same
+ * origins, within large and small memory budgets, and after changes to the map, which must drop the
+ * trees. A tree asked for by 4 threads at once is built once.
+ */
+public class ShortestPathTreeCacheTest
+{
+	public static void main(String[] args) throws Exception
+	{
+		Random rnd=new Random(18);
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 24, false, 20);
+			boolean large=rnd.nextBoolean();
+			long budget=large ? 1L<<30 : rnd.nextInt(4000);
+			ShortestPathTreePathFinder finder=new ShortestPathTreePathFinder(map, budget);
+			ShortestPathTreeCache trees=finder.trees();
+			for(int round=0;round<3;++round)
+			{
+				if(round>0)
+					TestMaps.change(rnd, map, 1+rnd.nextInt(8), 20);
+				long misses=trees.misses();
+				//the same origins every time, so within a large budget one tree answers all the queries
+				for(int query=0;query<5;++query)
+				{
+					map.destCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(3));
+					TestMaps.checkCost("shortest path tree", map, finder.findPath());
+					TestMaps.check(trees.usedBytes()<=budget, "shortest path tree: "+trees.usedBytes()+" bytes kept, budget "+budget, map);
+				}
+				TestMaps.check(!large || trees.misses()<=misses+1, "shortest path tree: "+(trees.misses()-misses)
+					+" trees built for one set of origins", map);
+				//waypoints need a tree from each of them
+				map.waypointCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 1+rnd.nextInt(3));
+				TestMaps.checkCost("shortest path tree with waypoints", map, finder.findPath());
+				map.waypointCells=new ArrayList<Coordinate>();
+			}
+		}
+		checkSharedBuild();
+		System.out.println("ShortestPathTreeCacheTest passed");
+	}
+
+	private static void checkSharedBuild() throws Exception
+	{
+		ExecutorService threads=Executors.newFixedThreadPool(4);
+		try
+		{
+			Random rnd=new Random(1);
+			for(int trial=0;trial<50;++trial)
+			{
+				PathMap map=TestMaps.random(rnd, 60, false, 20);
+				ShortestPathTreeCache trees=new ShortestPathTreeCache(map, 1L<<30);
+				CountDownLatch start=new CountDownLatch(1);
+				List<Future<ShortestPathTree>> built=new ArrayList<Future<ShortestPathTree>>();
+				for(int i=0;i<4;++i)
+					built.add(threads.submit(() -> {
+						start.await();
+						return trees.tree(map.originCells);
+					}));
+				start.countDown();
+				for(Future<ShortestPathTree> tree : built)
+					TestMaps.check(tree.get()==built.get(0).get(), "shortest path tree: threads got different trees", map);
+				TestMaps.check(trees.misses()==1 && trees.hits()==3, "shortest path tree: "+trees, map);
+			}
+		}
+		finally
+		{
+			threads.shutdown();
+		}
+	}
+}
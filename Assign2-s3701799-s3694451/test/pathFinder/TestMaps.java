@@ -0,0 +1,127 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * Random maps for the tests, and checks of the paths found on them against DijkstraPathFinder.
+ */
+final class TestMaps
+{
+	private TestMaps() {}
+
+	/**
+	 * A map of up to maxSize rows and columns, with up to 2 origins, 3 destinations and, if asked, 3 waypoints.
+	 * Up to 30% of the other cells are impassable, and a third of the rest can have a terrain cost up to maxCost.
+	 */
+	static PathMap random(Random rnd, int maxSize, boolean waypoints, int maxCost)
+	{
+		int rows=1+rnd.nextInt(maxSize), cols=1+rnd.nextInt(maxSize);
+		List<Coordinate> origins=randomCells(rnd, rows, cols, 1+rnd.nextInt(2));
+		List<Coordinate> dests=randomCells(rnd, rows, cols, 1+rnd.nextInt(3));
+		List<Coordinate> wps=randomCells(rnd, rows, cols, waypoints && rnd.nextInt(3)==0 ? 1+rnd.nextInt(3) : 0);
+		Set<Coordinate> impassable=new HashSet<Coordinate>();
+		Map<Coordinate, Integer> terrain=new HashMap<Coordinate, Integer>();
+		int density=rnd.nextInt(4);
+		boolean costs=rnd.nextBoolean();
+		for(int r=0;r<rows;++r)
+			for(int c=0;c<cols;++c)
+			{
+				Coordinate cell=new Coordinate(r, c);
+				if(origins.contains(cell) || dests.contains(cell) || wps.contains(cell))
+					continue;
+				if(rnd.nextInt(10)<density)
+					impassable.add(cell);
+				else if(costs && rnd.nextInt(3)==0)
+					terrain.put(cell, 1+rnd.nextInt(maxCost));
+			}
+		PathMap map=new PathMap();
+		map.initMap(rows, cols, origins, dests, impassable, terrain, wps);
+		map.isVisu=false;
+		return map;
+	}
+
+	//cells anywhere on a map of the given size, passable or not
+	static List<Coordinate> randomCells(Random rnd, int rows, int cols, int count)
+	{
+		List<Coordinate> cells=new ArrayList<Coordinate>();
+		for(int i=0;i<count;++i)
+			cells.add(new Coordinate(rnd.nextInt(rows), rnd.nextInt(cols)));
+		return cells;
+	}
+
+	//blocks, unblocks or changes the terrain cost of random cells, never an origin, destination or waypoint
+	static void change(Random rnd, PathMap map, int changes, int maxCost)
+	{
+		for(int i=0;i<changes;++i)
+		{
+			int r=rnd.nextInt(map.sizeR), c=rnd.nextInt(map.sizeC);
+			Coordinate cell=new Coordinate(r, c);
+			if(map.originCells.contains(cell) || map.destCells.contains(cell) || map.waypointCells.contains(cell))
+				continue;
+			switch(rnd.nextInt(3))
+			{
+				case 0: map.blockCell(r, c); break;
+				case 1: map.unblockCell(r, c); break;
+				default: map.setTerrainCost(r, c, 1+rnd.nextInt(maxCost)); break;
+			}
+		}
+	}
+
+	//cost of a path, the terrain costs of the cells entered, -1 for no path
+	static int cost(PathMap map, List<Coordinate> path)
+	{
+		if(path.isEmpty())
+			return -1;
+		int cost=0;
+		for(int i=1;i<path.size();++i)
+			cost+=map.getGrid().terrainCost(map.getGrid().index(path.get(i).getRow(), path.get(i).getColumn()));
+		return cost;
+	}
+
+	/**
+	 * Checks that the path goes from an origin through the waypoints in order to a destination,
+	 * one step at a time over passable cells.
+	 *
+	 * @throws AssertionError If it does not.
+	 */
+	static void checkPath(String name, PathMap map, List<Coordinate> path)
+	{
+		if(path.isEmpty())
+			return;
+		check(map.originCells.contains(path.get(0)), name+": path does not start at an origin", map);
+		check(map.destCells.contains(path.get(path.size()-1)), name+": path does not end at a destination", map);
+		int waypoint=0;
+		for(int i=0;i<path.size();++i)
+		{
+			Coordinate cell=path.get(i);
+			check(map.isPassable(cell.getRow(), cell.getColumn()), name+": path crosses impassable "+cell, map);
+			if(i>0)
+			{
+				Coordinate prev=path.get(i-1);
+				check(Math.abs(prev.getRow()-cell.getRow())+Math.abs(prev.getColumn()-cell.getColumn())==1,
+					name+": path jumps from "+prev+" to "+cell, map);
+			}
+			while(waypoint<map.waypointCells.size() && cell.equals(map.waypointCells.get(waypoint)))
+				waypoint++;
+		}
+		check(waypoint==map.waypointCells.size(), name+": path misses waypoints", map);
+	}
+
+	//checks the path and that it costs as much as the path of DijkstraPathFinder
+	static void checkCost(String name, PathMap map, List<Coordinate> path)
+	{
+		checkPath(name, map, path);
+		int expected=cost(map, new DijkstraPathFinder(map).findPath());
+		int actual=cost(map, path);
+		check(actual==expected, name+": path costs "+actual+", expected "+expected, map);
+	}
+
+	static void check(boolean condition, String message, PathMap map)
+	{
+		if(!condition)
+			throw new AssertionError(message+" on "+map.sizeR+"x"+map.sizeC+" origins "+map.originCells
+				+" destinations "+map.destCells+" waypoints "+map.waypointCells);
+	}
+}
@@ -0,0 +1,87 @@
+package pathFinder;
+
+import java.util.*;
+import map.Coordinate;
+import map.PathMap;
+
+/**
+ * The waypoint order of WaypointTourPlanner against every order tried by brute force, each costed with
+ * DijkstraPathFinder, and DijkstraPathFinder with reordering on, reused after changes to the map.
+ * Above EXACT_LIMIT waypoints the order is a heuristic, so only the path is checked.
+ */
+public class WaypointTourPlannerTest
+{
+	public static void main(String[] args)
+	{
+		Random rnd=new Random(15);
+		for(int trial=0;trial<300;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 14, false, 9);
+			map.waypointCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, 2+rnd.nextInt(4));
+			DijkstraPathFinder finder=new DijkstraPathFinder(map);
+			finder.setReorderWaypoints(true);
+			for(int round=0;round<3;++round)
+			{
+				if(round>0)
+					TestMaps.change(rnd, map, 1+rnd.nextInt(8), 9);
+				int best=bestOrderCost(map);
+				PathQuery query=PathQuery.of(map);
+				PathResult planned=new WaypointTourPlanner(map.snapshot()).findPath(query);
+				TestMaps.check(planned.getCost()==best, "planner: tour costs "+planned.getCost()+", best order "+best, map);
+				List<Coordinate> path=finder.findPath();
+				TestMaps.check(TestMaps.cost(map, path)==best, "reordering Dijkstra: tour costs "+TestMaps.cost(map, path)
+					+", best order "+best, map);
+				List<Coordinate> waypoints=map.waypointCells;
+				map.waypointCells=new WaypointTourPlanner(map.snapshot()).order(query);
+				TestMaps.checkPath("reordering Dijkstra", map, path);
+				map.waypointCells=waypoints;
+			}
+		}
+
+		//past the exact limit the tour still visits every waypoint
+		for(int trial=0;trial<20;++trial)
+		{
+			PathMap map=TestMaps.random(rnd, 30, false, 9);
+			map.waypointCells=TestMaps.randomCells(rnd, map.sizeR, map.sizeC, WaypointTourPlanner.EXACT_LIMIT+1+rnd.nextInt(4));
+			PathQuery query=PathQuery.of(map);
+			WaypointTourPlanner planner=new WaypointTourPlanner(map.snapshot());
+			List<Coordinate> order=planner.order(query);
+			TestMaps.check(new HashSet<Coordinate>(order).equals(new HashSet<Coordinate>(map.waypointCells))
+				&& order.size()==map.waypointCells.size(), "planner: order "+order+" is not a permutation", map);
+			PathResult planned=planner.findPath(query);
+			map.waypointCells=order;
+			TestMaps.checkPath("planner", map, planned.getPath());
+			TestMaps.check(planned.getCost()==TestMaps.cost(map, new DijkstraPathFinder(map).findPath()),
+				"planner: tour costs "+planned.getCost()+" in its own order", map);
+		}
+		System.out.println("WaypointTourPlannerTest passed");
+	}
+
+	//cost of the cheapest order of the waypoints of the map, -1 if no order has a path
+	private static int bestOrderCost(PathMap map)
+	{
+		List<Coordinate> waypoints=map.waypointCells;
+		int[] best={-1};
+		permute(map, new ArrayList<Coordinate>(waypoints), 0, best);
+		map.waypointCells=waypoints;
+		return best[0];
+	}
+
+	private static void permute(PathMap map, List<Coordinate> order, int k, int[] best)
+	{
+		if(k==order.size())
+		{
+			map.waypointCells=order;
+			int cost=TestMaps.cost(map, new DijkstraPathFinder(map).findPath());
+			if(cost!=-1 && (best[0]==-1 || cost<best[0]))
+				best[0]=cost;
+			return;
+		}
+		for(int i=k;i<order.size();++i)
+		{
+			Collections.swap(order, k, i);
+			permute(map, order, k+1, best);
+			Collections.swap(order, k, i);
+		}
+	}
+}